@@ -6,6 +6,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 
+import com.github.acticfox.common.tools.util.StartupTimeline;
+
 /**
  * 
  * 类AbstractStarter.java的实现描述：TODO 类实现描述
@@ -27,8 +29,14 @@ public abstract class AbstractStarter implements InitializingBean, ConcreteConte
     public void onContextRefreshed() throws Exception {
         if (ifStarted.compareAndSet(false, true)) {
             log.info("{} start begin", this.getClass().getName());
-            start();
-            log.info("{} start done", this.getClass().getName());
+            StartupTimeline.Span span = StartupTimeline.begin(StartupTimeline.STARTER, this.getClass().getName());
+            StartupTimeline.Phase phase;
+            try {
+                start();
+            } finally {
+                phase = span.end();
+            }
+            log.info("{} start done,cost:{}ms", this.getClass().getName(), phase.getWallNanos() / 1000000);
         }
     }
 
@@ -39,6 +47,18 @@ public abstract class AbstractStarter implements InitializingBean, ConcreteConte
      */
     public abstract void start() throws Exception;
 
+    /**
+     * 注册预热任务，所有监听器启动完成后并行执行，一般在start中调用，见WarmUpManager
+     *
+     * @param name 任务名称，会加上当前类名作为前缀
+     * @param workload 模拟请求
+     * @param iterations 最多执行次数
+     * @param maxMillis 最长执行时间
+     */
+    protected void registerWarmUp(String name, WarmUpManager.Workload workload, int iterations, long maxMillis) {
+        WarmUpManager.register(this.getClass().getSimpleName() + "." + name, workload, iterations, maxMillis);
+    }
+
     @Override
     public void onContextClosed() throws Exception {
         if (ifStarted.compareAndSet(true, false)) {
@@ -7,6 +7,8 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 
+import com.github.acticfox.common.tools.thredpool.ShutdownCoordinator;
+
 /**
  * 类的实现描述：TODO 类实现描述
  *
@@ -33,7 +35,11 @@ public class AppContextListener implements ApplicationListener {
         ContextListenerManager.onContextRefreshed();
     }
 
+    /**
+     * 先通知各监听器停止产生任务，再排空并关闭受管理的线程池
+     */
     private void onContextClosed() {
         ContextListenerManager.onContextClosed();
+        ShutdownCoordinator.shutdown();
     }
 }
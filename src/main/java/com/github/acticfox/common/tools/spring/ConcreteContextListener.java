@@ -1,5 +1,8 @@
 package com.github.acticfox.common.tools.spring;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * 类的实现描述：ConcreteContextListener 类实现描述
  *
@@ -20,4 +23,22 @@ public interface ConcreteContextListener {
      * @throws Exception
      */
     void onContextClosed() throws Exception;
+
+    /**
+     * 启动阶段，阶段小的全部完成后才启动阶段大的，同一阶段内没有依赖关系的监听器并行启动
+     *
+     * @return 默认0
+     */
+    default int getPhase() {
+        return 0;
+    }
+
+    /**
+     * 依赖的监听器类型，这些类型（含子类）的监听器全部启动完成后才启动当前监听器，未注册的类型忽略
+     *
+     * @return 默认无依赖
+     */
+    default Collection<Class<? extends ConcreteContextListener>> getDependencies() {
+        return Collections.emptyList();
+    }
 }
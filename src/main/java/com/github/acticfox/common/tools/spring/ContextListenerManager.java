@@ -1,41 +1,242 @@
 package com.github.acticfox.common.tools.spring;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.acticfox.common.tools.util.StartupTimeline;
+
 /**
  * 类的实现描述：ContextListenerManager 类实现描述
  *
+ * <pre>
+ * onContextRefreshed按阶段（getPhase）和依赖（getDependencies）排序后启动监听器：
+ *   阶段小的全部完成后才启动阶段大的，同一阶段内没有依赖关系的监听器可在有界线程池中并行启动
+ *   依赖存在环时退化为按注册顺序串行启动
+ *   启动线程数：系统属性contextListener.start.threads，默认1即在当前线程按排序串行启动；并行启动需显式开启，
+ *     开启前需确认监听器之间的隐式依赖都已通过getPhase或getDependencies声明
+ *   整体超时：系统属性contextListener.start.timeoutSeconds，默认300秒，超时后中断未完成的监听器并抛出异常，
+ *     启动失败，不执行预热，应用不会被标记为就绪
+ * 单个监听器启动失败只输出日志，不影响依赖它的监听器启动，与串行启动时的行为一致
+ * 全部启动后执行WarmUpManager中注册的预热任务，再输出并清空StartupTimeline中记录的启动耗时报告
+ * </pre>
+ *
  * @author fanyong.kfy 2018-08-22 16:14:26
  */
 public class ContextListenerManager {
 
     private final static Logger log = LoggerFactory.getLogger(ContextListenerManager.class);
 
-    private static List<ConcreteContextListener> listenerList = new ArrayList<>();
+    public static final String START_THREADS_PROPERTY = "contextListener.start.threads";
+
+    public static final String START_TIMEOUT_PROPERTY = "contextListener.start.timeoutSeconds";
+
+    private static final int DEFAULT_START_THREADS = 1;
+
+    private static final long DEFAULT_START_TIMEOUT_SECONDS = 300;
+
+    private static List<ConcreteContextListener> listenerList = new CopyOnWriteArrayList<>();
 
     public static void addListener(ConcreteContextListener listener) {
         listenerList.add(listener);
     }
 
+    public static void removeListener(ConcreteContextListener listener) {
+        listenerList.remove(listener);
+    }
+
     public static void onContextRefreshed() {
-        for (ConcreteContextListener listener : listenerList) {
-            try {
-                log.info("{},onContextRefreshed begin", listener.getClass().getName());
-                listener.onContextRefreshed();
-                log.info("{},onContextRefreshed done", listener.getClass().getName());
-            } catch (Exception ex) {
-                log.error("{},onContextRefreshed error ,errorMsg:{}", listener.getClass().getName(), ex.getMessage(),
-                    ex);
+        List<ConcreteContextListener> listeners = new ArrayList<>(listenerList);
+        long startTime = System.currentTimeMillis();
+        int[][] dependencies = dependencies(listeners);
+        int[] order = sort(dependencies);
+        int threads = Math.min(Integer.getInteger(START_THREADS_PROPERTY, DEFAULT_START_THREADS), listeners.size());
+        if (order == null) {
+            log.error("contextListener dependency cycle found,fallback to registration order,listeners:{}",
+                names(listeners));
+            for (ConcreteContextListener listener : listeners) {
+                refresh(listener);
+            }
+        } else if (threads <= 1) {
+            for (int i : order) {
+                refresh(listeners.get(i));
+            }
+        } else {
+            refreshInParallel(listeners, dependencies, order, threads,
+                Long.getLong(START_TIMEOUT_PROPERTY, DEFAULT_START_TIMEOUT_SECONDS));
+        }
+        log.info("onContextRefreshed listeners:{},threads:{},cost:{}ms", listeners.size(), Math.max(threads, 1),
+            System.currentTimeMillis() - startTime);
+        WarmUpManager.warmUp();
+        // 取出后清空，子context刷新时只输出新记录的阶段
+        String report = StartupTimeline.drainReport();
+        if (!report.isEmpty()) {
+            log.info(report);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException 超时、被中断或启动线程异常退出，未完成的监听器已被中断
+     */
+    private static void refreshInParallel(List<ConcreteContextListener> listeners, int[][] dependencies,
+                                          int[] order, int threads, long timeoutSeconds) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), new StarterThreadFactory());
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[listeners.size()];
+        try {
+            // order为拓扑序，依赖的future一定已经创建
+            for (int i : order) {
+                CompletableFuture<?>[] ready = new CompletableFuture<?>[dependencies[i].length];
+                for (int j = 0; j < ready.length; j++) {
+                    ready[j] = futures[dependencies[i][j]];
+                }
+                final ConcreteContextListener listener = listeners.get(i);
+                futures[i] = CompletableFuture.allOf(ready).thenRunAsync(new Runnable() {
+                    @Override
+                    public void run() {
+                        refresh(listener);
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("onContextRefreshed timeout after " + timeoutSeconds + "s,unfinished:"
+                                            + unfinished(listeners, futures), ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("onContextRefreshed error,unfinished:" + unfinished(listeners, futures),
+                ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("onContextRefreshed interrupted,unfinished:"
+                                            + unfinished(listeners, futures), ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void refresh(ConcreteContextListener listener) {
+        // AbstractStarter自己记录启动耗时
+        StartupTimeline.Span span = listener instanceof AbstractStarter ? null
+            : StartupTimeline.begin(StartupTimeline.LISTENER, listener.getClass().getName());
+        try {
+            log.info("{},onContextRefreshed begin", listener.getClass().getName());
+            listener.onContextRefreshed();
+            log.info("{},onContextRefreshed done", listener.getClass().getName());
+        } catch (Exception ex) {
+            log.error("{},onContextRefreshed error ,errorMsg:{}", listener.getClass().getName(), ex.getMessage(), ex);
+        } finally {
+            if (span != null) {
+                span.end();
+            }
+        }
+    }
+
+    /**
+     * 每个监听器依赖的监听器下标：阶段更小的全部监听器，以及getDependencies中类型匹配的监听器
+     */
+    private static int[][] dependencies(List<ConcreteContextListener> listeners) {
+        int size = listeners.size();
+        int[] phases = new int[size];
+        for (int i = 0; i < size; i++) {
+            phases[i] = listeners.get(i).getPhase();
+        }
+
+        int[][] dependencies = new int[size][];
+        for (int i = 0; i < size; i++) {
+            int[] dependency = new int[size];
+            int count = 0;
+            for (int j = 0; j < size; j++) {
+                if (j != i && (phases[j] < phases[i] || dependsOn(listeners.get(i), listeners.get(j)))) {
+                    dependency[count++] = j;
+                }
+            }
+            dependencies[i] = Arrays.copyOf(dependency, count);
+        }
+        return dependencies;
+    }
+
+    private static boolean dependsOn(ConcreteContextListener listener, ConcreteContextListener dependency) {
+        for (Class<? extends ConcreteContextListener> type : listener.getDependencies()) {
+            if (type.isInstance(dependency)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 拓扑排序，可以启动的监听器中注册早的排在前面
+     *
+     * @return 依赖存在环时返回null
+     */
+    private static int[] sort(int[][] dependencies) {
+        int size = dependencies.length;
+        int[] remaining = new int[size];
+        List<List<Integer>> dependents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            remaining[i] = dependencies[i].length;
+            dependents.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j : dependencies[i]) {
+                dependents.get(j).add(i);
+            }
+        }
+
+        int[] order = new int[size];
+        boolean[] sorted = new boolean[size];
+        for (int count = 0; count < size; count++) {
+            int next = -1;
+            for (int i = 0; i < size; i++) {
+                if (!sorted[i] && remaining[i] == 0) {
+                    next = i;
+                    break;
+                }
             }
+            if (next < 0) {
+                return null;
+            }
+            sorted[next] = true;
+            order[count] = next;
+            for (int dependent : dependents.get(next)) {
+                remaining[dependent]--;
+            }
+        }
+        return order;
+    }
 
+    private static List<String> unfinished(List<ConcreteContextListener> listeners, CompletableFuture<?>[] futures) {
+        List<String> unfinished = new ArrayList<>();
+        for (int i = 0; i < futures.length; i++) {
+            if (futures[i] == null || !futures[i].isDone() || futures[i].isCompletedExceptionally()) {
+                unfinished.add(listeners.get(i).getClass().getName());
+            }
         }
+        return unfinished;
+    }
+
+    private static List<String> names(List<ConcreteContextListener> listeners) {
+        List<String> names = new ArrayList<>(listeners.size());
+        for (ConcreteContextListener listener : listeners) {
+            names.add(listener.getClass().getName());
+        }
+        return names;
     }
 
     public static void onContextClosed() {
+        WarmUpManager.markNotReady();
         for (ConcreteContextListener listener : listenerList) {
             try {
                 log.info("{},onContextClosed begin", listener.getClass().getName());
@@ -47,4 +248,17 @@ public class ContextListenerManager {
         }
     }
 
+    /**
+     * 启动线程为非守护线程：监听器在启动时创建的线程继承当前线程的daemon属性，需与串行启动时一致
+     */
+    private static final class StarterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "contextListenerStarter-" + threadNumber.getAndIncrement());
+        }
+    }
+
 }
@@ -0,0 +1,31 @@
+package com.github.acticfox.common.tools.spring;
+
+import com.github.acticfox.common.tools.thredpool.PropertyThreadPoolConfig;
+import com.github.acticfox.common.tools.util.PropertyUtil;
+
+/**
+ * 类的实现描述：spring context刷新后创建所有在属性文件中声明的线程池，见PropertyThreadPoolConfig；
+ * 同时开始监视属性文件，文件变更后线程数随之调整。关闭时只移除线程池配置的属性监听器，
+ * 属性文件监视是全局的，其他使用方可能仍依赖它，不在此停止
+ */
+public class DeclaredThreadPoolStarter extends AbstractStarter {
+
+    @Override
+    public void start() throws Exception {
+        PropertyThreadPoolConfig threadPoolConfig = PropertyThreadPoolConfig.getInstance();
+        PropertyUtil.addListener(threadPoolConfig);
+        threadPoolConfig.createDeclaredThreadPools();
+        log.info("declared threadPools created:{}", threadPoolConfig.getDeclaredThreadPoolNames());
+        try {
+            PropertyUtil.startWatching();
+        } catch (IllegalStateException ex) {
+            log.warn("property file watching not started,threadPool size changes need PropertyUtil.reload(),"
+                + "errorMsg:{}", ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void shutdown() throws Exception {
+        PropertyUtil.removeListener(PropertyThreadPoolConfig.getInstance());
+    }
+}
@@ -0,0 +1,231 @@
+package com.github.acticfox.common.tools.spring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.acticfox.common.tools.util.StartupTimeline;
+
+/**
+ * 类的实现描述：接入流量前的JIT预热，starter注册模拟请求的预热任务，所有监听器启动完成后并行执行，执行完后isReady返回true
+ *
+ * <pre>
+ * 使用方式（一般在AbstractStarter.start中注册）：
+ *   registerWarmUp("urlUtils", iteration -> URLUtils.formURLEncodeMap(params), 20000, 3000);
+ * 每个任务执行到指定次数或超过指定时间后停止，抛出异常时停止该任务，不影响其他任务
+ * 模拟请求需要响应中断：整体超时后只能中断执行线程，忽略中断的任务会在守护线程中继续执行
+ * 线程数：系统属性warmUp.threads，默认cpu核数的一半（1到4之间），为JIT编译线程留出CPU
+ * 整体超时：系统属性warmUp.timeoutSeconds，默认60秒
+ * 预热任务只执行一次，执行后清空；全部任务正常结束（包括任务自身抛出异常）后标记为就绪，
+ * 整体超时或预热线程被中断时不标记就绪，之后再次预热（如子context刷新）也不标记就绪，context关闭时取消就绪并清除失败状态
+ * 健康检查等对外接入流量的逻辑以isReady为准
+ * </pre>
+ */
+public class WarmUpManager {
+
+    private final static Logger log = LoggerFactory.getLogger(WarmUpManager.class);
+
+    public static final String THREADS_PROPERTY = "warmUp.threads";
+
+    public static final String TIMEOUT_PROPERTY = "warmUp.timeoutSeconds";
+
+    public static final int DEFAULT_ITERATIONS = 10000;
+
+    public static final long DEFAULT_MAX_MILLIS = 5000;
+
+    private static final int DEFAULT_THREADS = Math.min(4,
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final long DEFAULT_TIMEOUT_SECONDS = 60;
+
+    private static final List<WarmUpTask> tasks = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean ready;
+
+    /**
+     * 预热超时或被中断，context关闭前不再标记就绪
+     */
+    private static volatile boolean failed;
+
+    /**
+     * 预热任务
+     */
+    public interface Workload {
+
+        /**
+         * 执行一次模拟请求，阻塞操作需要响应中断
+         *
+         * @param iteration 从0开始的执行次数
+         * @throws Exception
+         */
+        void run(int iteration) throws Exception;
+    }
+
+    /**
+     * 按默认次数和时间注册预热任务
+     *
+     * @see #register(String, Workload, int, long)
+     */
+    public static void register(String name, Workload workload) {
+        register(name, workload, DEFAULT_ITERATIONS, DEFAULT_MAX_MILLIS);
+    }
+
+    /**
+     * 注册预热任务
+     *
+     * @param name 任务名称
+     * @param workload 模拟请求
+     * @param iterations 最多执行次数
+     * @param maxMillis 最长执行时间
+     */
+    public static void register(String name, Workload workload, int iterations, long maxMillis) {
+        if (workload == null) {
+            throw new IllegalArgumentException("workload is null");
+        }
+        if (iterations <= 0 || maxMillis <= 0) {
+            throw new IllegalArgumentException("iterations and maxMillis must be greater than zero");
+        }
+        tasks.add(new WarmUpTask(name, workload, iterations, maxMillis));
+    }
+
+    /**
+     * @return 预热是否已完成，可以接入流量
+     */
+    public static boolean isReady() {
+        return ready;
+    }
+
+    static void markNotReady() {
+        ready = false;
+        failed = false;
+    }
+
+    /**
+     * 并行执行已注册的预热任务，全部正常结束且之前的预热没有失败时标记为就绪
+     */
+    public static void warmUp() {
+        List<WarmUpTask> pending = new ArrayList<>(tasks);
+        tasks.removeAll(pending);
+        if (pending.isEmpty()) {
+            if (failed) {
+                log.error("warmUp failed before,not ready");
+                return;
+            }
+            ready = true;
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        long timeoutSeconds = Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        for (WarmUpTask task : pending) {
+            task.deadline = deadline;
+        }
+        int threads = Math.max(1, Math.min(Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS), pending.size()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), new WarmUpThreadFactory());
+        boolean timeout = false;
+        try {
+            List<Future<Integer>> futures = executor.invokeAll(pending, timeoutSeconds, TimeUnit.SECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                WarmUpTask task = pending.get(i);
+                try {
+                    log.info("warmUp {} done,iterations:{}", task.name, futures.get(i).get());
+                } catch (CancellationException ex) {
+                    timeout = true;
+                    log.error("warmUp {} timeout after {}s", task.name, timeoutSeconds);
+                } catch (ExecutionException ex) {
+                    log.error("warmUp {} error,errorMsg:{}", task.name, ex.getCause().getMessage(), ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failed = true;
+            log.error("warmUp interrupted,not ready");
+            return;
+        } finally {
+            executor.shutdownNow();
+        }
+        if (timeout) {
+            failed = true;
+            log.error("warmUp timeout,not ready,tasks:{},cost:{}ms", pending.size(),
+                System.currentTimeMillis() - startTime);
+            return;
+        }
+        if (failed) {
+            log.error("warmUp failed before,not ready,tasks:{},cost:{}ms", pending.size(),
+                System.currentTimeMillis() - startTime);
+            return;
+        }
+        ready = true;
+        log.info("warmUp done,tasks:{},threads:{},cost:{}ms", pending.size(), threads,
+            System.currentTimeMillis() - startTime);
+    }
+
+    private static final class WarmUpTask implements Callable<Integer> {
+
+        private final String name;
+
+        private final Workload workload;
+
+        private final int iterations;
+
+        private final long maxNanos;
+
+        /**
+         * 整体截止时间，执行前设置
+         */
+        private volatile long deadline;
+
+        WarmUpTask(String name, Workload workload, int iterations, long maxMillis) {
+            this.name = name;
+            this.workload = workload;
+            this.iterations = iterations;
+            this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        }
+
+        /**
+         * @return 执行次数
+         */
+        @Override
+        public Integer call() throws Exception {
+            StartupTimeline.Span span = StartupTimeline.begin(StartupTimeline.WARM_UP, name);
+            try {
+                long startNanos = System.nanoTime();
+                long end = deadline - startNanos < maxNanos ? deadline : startNanos + maxNanos;
+                int iteration = 0;
+                while (iteration < iterations && System.nanoTime() - end < 0
+                    && !Thread.currentThread().isInterrupted()) {
+                    workload.run(iteration++);
+                }
+                return iteration;
+            } finally {
+                span.end();
+            }
+        }
+    }
+
+    private static final class WarmUpThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "warmUp-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.github.acticfox.common.tools.thredpool;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -14,12 +16,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
 
+import com.github.acticfox.common.tools.util.ErrorReporter;
+
 /**
  * 类的实现描述：多个任务队列共享一个ThreadPool，每个任务队列可以单独设置capacity，公平的请求ThreadPool处理
+ * 创建后注册到ShutdownCoordinator，应用关闭时排空队列后退出消费线程
  *
  * @author fanyong.kfy 2019-08-12 13:34:52
  */
-public class MultiTaskQueueThreadPool {
+public class MultiTaskQueueThreadPool implements Shutdownable {
 
     private static Logger logger = LoggerFactory.getLogger(MultiTaskQueueThreadPool.class);
 
@@ -27,7 +32,13 @@ public class MultiTaskQueueThreadPool {
 
     private ThreadPoolExecutor threadPoolExecutor;
 
-    private Map<String, LinkedBlockingQueue<FutureTask>> taskQueueMap = new HashMap<>();
+    private Map<String, LinkedBlockingQueue<FutureTask<?>>> taskQueueMap = new HashMap<>();
+
+    private final List<Thread> consumers = new ArrayList<>();
+
+    private volatile boolean shutdown;
+
+    private volatile boolean stopped;
 
     public MultiTaskQueueThreadPool(String threadPoolName, ThreadPoolExecutor threadPoolExecutor,
                                     List<TaskQueueConfig> queueConfigs) {
@@ -45,22 +56,59 @@ public class MultiTaskQueueThreadPool {
 
         queueConfigs.forEach((queueConfig) -> {
             if (taskQueueMap.get(queueConfig.getQueueName()) == null) {
-                LinkedBlockingQueue<FutureTask> queue = new LinkedBlockingQueue<>(queueConfig.queueCapacity);
-                Thread queueConsumer = new Thread(() -> {
-                    while (true) {
-                        try {
-                            FutureTask task = queue.take();
-                            threadPoolExecutor.execute(task);
-                        } catch (Throwable ex) {
-                            logger.error("thread:{},errorMsg:{}", Thread.currentThread(), ex.getMessage(), ex);
-                        }
-                    }
-                });
+                LinkedBlockingQueue<FutureTask<?>> queue = new LinkedBlockingQueue<>(queueConfig.queueCapacity);
+                Thread queueConsumer = new Thread(() -> consume(queue));
                 queueConsumer.setName(this.threadPoolName + "_" + queueConfig.queueName + "_consumer");
                 queueConsumer.start();
+                consumers.add(queueConsumer);
                 taskQueueMap.put(queueConfig.getQueueName(), queue);
             }
         });
+        ShutdownCoordinator.register(this);
+    }
+
+    /**
+     * 将队列中的任务交给线程池执行，shutdown时被中断，排空队列后退出，shutdownNow后立即退出
+     */
+    private void consume(LinkedBlockingQueue<FutureTask<?>> queue) {
+        while (!shutdown) {
+            FutureTask<?> task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException ex) {
+                // shutdown时中断，由循环条件退出
+                continue;
+            }
+            execute(task);
+        }
+        // 先读到shutdown再排空，之后入队的任务由入队方撤回，见checkEnqueued
+        FutureTask<?> task;
+        while (!stopped && (task = queue.poll()) != null) {
+            execute(task);
+        }
+    }
+
+    /**
+     * 线程池拒绝时取消任务，调用方不会一直等待结果；等待入队时被shutdown中断的，线程池未关闭则重新提交
+     */
+    private void execute(FutureTask<?> task) {
+        while (true) {
+            try {
+                threadPoolExecutor.execute(task);
+                return;
+            } catch (RejectedExecutionException ex) {
+                if (Thread.interrupted() && !stopped && !threadPoolExecutor.isShutdown()) {
+                    continue;
+                }
+                task.cancel(false);
+                ErrorReporter.getDefault().report(logger, ex, "thread:{},task rejected and cancelled",
+                    Thread.currentThread());
+                return;
+            } catch (Throwable ex) {
+                ErrorReporter.getDefault().report(logger, ex, "thread:{}", Thread.currentThread());
+                return;
+            }
+        }
     }
 
     public static class TaskQueueConfig {
@@ -91,12 +139,34 @@ public class MultiTaskQueueThreadPool {
      * @param queueName
      * @return
      */
-    private LinkedBlockingQueue<FutureTask> queueOf(String queueName) {
+    private LinkedBlockingQueue<FutureTask<?>> queueOf(String queueName) {
         return taskQueueMap.get(queueName);
     }
 
-    public void putTask(String queueName, FutureTask task) throws InterruptedException {
-        queueOf(queueName).put(task);
+    private void checkNotShutdown() {
+        if (shutdown) {
+            throw new RejectedExecutionException("multiTaskQueueThreadPool " + threadPoolName + " is shutdown");
+        }
+    }
+
+    /**
+     * 入队后再检查一次：入队前检查shutdown与入队之间，消费线程可能已排空队列退出，此时撤回任务，
+     * 避免任务留在队列中无人执行，调用方一直等待结果；撤回失败说明任务已被消费线程取出
+     */
+    private void checkEnqueued(LinkedBlockingQueue<FutureTask<?>> queue, FutureTask<?> task) {
+        if (shutdown && queue.remove(task)) {
+            throw new RejectedExecutionException("multiTaskQueueThreadPool " + threadPoolName + " is shutdown");
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException 已shutdown
+     */
+    public void putTask(String queueName, FutureTask<?> task) throws InterruptedException {
+        checkNotShutdown();
+        LinkedBlockingQueue<FutureTask<?>> queue = queueOf(queueName);
+        queue.put(task);
+        checkEnqueued(queue, task);
     }
 
     /**
@@ -109,10 +179,17 @@ public class MultiTaskQueueThreadPool {
      * @param unit
      * @return
      * @throws InterruptedException
+     * @throws RejectedExecutionException 已shutdown
      */
-    public boolean offerTask(String queueName, FutureTask task, long timeout, TimeUnit unit)
+    public boolean offerTask(String queueName, FutureTask<?> task, long timeout, TimeUnit unit)
         throws InterruptedException {
-        return queueOf(queueName).offer(task, timeout, unit);
+        checkNotShutdown();
+        LinkedBlockingQueue<FutureTask<?>> queue = queueOf(queueName);
+        if (!queue.offer(task, timeout, unit)) {
+            return false;
+        }
+        checkEnqueued(queue, task);
+        return true;
     }
 
     public int queueSize(String queueName) {
@@ -138,4 +215,58 @@ public class MultiTaskQueueThreadPool {
     public String getThreadPoolName() {
         return threadPoolName;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getName() {
+        return threadPoolName + "_consumer";
+    }
+
+    /**
+     * 停止接收新任务，中断等待任务的消费线程，消费线程将队列中已有的任务交给线程池后退出
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Thread consumer : consumers) {
+            consumer.interrupt();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread consumer : consumers) {
+            TimeUnit.NANOSECONDS.timedJoin(consumer, deadline - System.nanoTime());
+            if (consumer.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 停止消费线程，取消队列中未交给线程池的任务
+     *
+     * @return 取消的任务数
+     */
+    @Override
+    public int shutdownNow() {
+        shutdown = true;
+        stopped = true;
+        for (Thread consumer : consumers) {
+            consumer.interrupt();
+        }
+        List<FutureTask<?>> pending = new ArrayList<>();
+        for (LinkedBlockingQueue<FutureTask<?>> queue : taskQueueMap.values()) {
+            queue.drainTo(pending);
+        }
+        for (FutureTask<?> task : pending) {
+            task.cancel(false);
+        }
+        return pending.size();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+}
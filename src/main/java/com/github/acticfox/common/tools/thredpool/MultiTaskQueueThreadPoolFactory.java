@@ -24,7 +24,7 @@ public class MultiTaskQueueThreadPoolFactory {
     private static Map<String, MultiTaskQueueThreadPool> cachedThreadPools = new HashMap<>();
 
     /**
-     * 创建MultiTaskQueueThreadPool并缓存下来，下次创建同名的MultiTaskQueueThreadPool时直接返回
+     * 创建MultiTaskQueueThreadPool并缓存下来，下次创建同名的MultiTaskQueueThreadPool时直接返回，已关闭的重新创建
      *
      * @param threadPoolName
      * @param threadPoolConfig
@@ -44,12 +44,12 @@ public class MultiTaskQueueThreadPoolFactory {
         ThreadPoolExecutor threadPoolExecutor = ThreadPoolFactory.createThreadPool(threadPoolName, threadPoolConfig);
 
         MultiTaskQueueThreadPool multiTaskQueueThreadPool = cachedThreadPools.get(threadPoolName);
-        if (multiTaskQueueThreadPool != null) {
+        if (multiTaskQueueThreadPool != null && !multiTaskQueueThreadPool.isShutdown()) {
             return multiTaskQueueThreadPool;
         } else {
             synchronized (cachedThreadPools) {
                 multiTaskQueueThreadPool = cachedThreadPools.get(threadPoolName);
-                if (multiTaskQueueThreadPool != null) {
+                if (multiTaskQueueThreadPool != null && !multiTaskQueueThreadPool.isShutdown()) {
                     return multiTaskQueueThreadPool;
                 }
                 multiTaskQueueThreadPool = new MultiTaskQueueThreadPool(threadPoolName, threadPoolExecutor,
@@ -0,0 +1,181 @@
+package com.github.acticfox.common.tools.thredpool;
+
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.acticfox.common.tools.util.PropertyUtil;
+
+/**
+ * 类的实现描述：基于PropertyUtil属性配置的ThreadPoolConfig，属性变更后立即调整已创建线程池的线程数
+ *
+ * <pre>
+ * threadpool.&lt;name&gt;.size          = 线程数，声明了该属性的线程池可通过createDeclaredThreadPools统一创建
+ * threadpool.&lt;name&gt;.queue         = synchronous（默认） | linked | array
+ * threadpool.&lt;name&gt;.queueCapacity = 队列容量，linked和array队列有效，linked默认不限容量
+ * threadpool.&lt;name&gt;.rejection     = waiting（默认） | abort | callerRuns | discard | discardOldest
+ * </pre>
+ *
+ * 队列类型、队列容量和拒绝策略只在线程池创建时生效；删除size属性时保持当前线程数
+ * 属性文件变更后自动调整线程数依赖PropertyUtil.startWatching()，DeclaredThreadPoolStarter启动时会调用，
+ * 不使用该starter时需自行调用，否则只有调用PropertyUtil.reload()后才会调整
+ */
+public class PropertyThreadPoolConfig implements ThreadPoolConfig, PropertyUtil.PropertyListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyThreadPoolConfig.class);
+
+    public static final String KEY_PREFIX = "threadpool.";
+
+    private static final String SIZE_SUFFIX = ".size";
+
+    private static final String QUEUE_SUFFIX = ".queue";
+
+    private static final String QUEUE_CAPACITY_SUFFIX = ".queueCapacity";
+
+    private static final String REJECTION_SUFFIX = ".rejection";
+
+    private static final PropertyThreadPoolConfig INSTANCE = new PropertyThreadPoolConfig(
+        Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 未配置threadpool.&lt;name&gt;.size时的线程数
+     */
+    private final int defaultThreadNum;
+
+    private PropertyThreadPoolConfig(int defaultThreadNum) {
+        this.defaultThreadNum = defaultThreadNum;
+        PropertyUtil.addListener(this);
+    }
+
+    public static PropertyThreadPoolConfig getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 未配置size属性时，已创建的线程池保持当前线程数，未创建的使用默认线程数
+     */
+    @Override
+    public int getThreadNum(String threadPoolName) {
+        String key = KEY_PREFIX + threadPoolName + SIZE_SUFFIX;
+        if (PropertyUtil.getProperty(key) == null) {
+            ThreadPoolExecutor threadPoolExecutor = ThreadPoolFactory.getThreadPool(threadPoolName);
+            if (threadPoolExecutor != null && !threadPoolExecutor.isShutdown()) {
+                return threadPoolExecutor.getMaximumPoolSize();
+            }
+        }
+        return PropertyUtil.getPropertyOfInt(key, defaultThreadNum);
+    }
+
+    /**
+     * 按属性配置的队列和拒绝策略创建线程池，已创建时直接返回
+     *
+     * @param threadPoolName
+     * @return
+     */
+    public ThreadPoolExecutor createThreadPool(String threadPoolName) {
+        ThreadPoolExecutor threadPoolExecutor = ThreadPoolFactory.getThreadPool(threadPoolName);
+        if (threadPoolExecutor != null && !threadPoolExecutor.isShutdown()) {
+            // 已创建时不需要队列和拒绝策略
+            return ThreadPoolFactory.createThreadPool(threadPoolName, this);
+        }
+        return ThreadPoolFactory.createThreadPool(threadPoolName, this, rejectionOf(threadPoolName),
+            queueOf(threadPoolName));
+    }
+
+    /**
+     * 创建所有声明了threadpool.&lt;name&gt;.size属性的线程池
+     */
+    public void createDeclaredThreadPools() {
+        for (String threadPoolName : getDeclaredThreadPoolNames()) {
+            createThreadPool(threadPoolName);
+        }
+    }
+
+    /**
+     * 声明了threadpool.&lt;name&gt;.size属性的线程池名称
+     *
+     * @return
+     */
+    public Set<String> getDeclaredThreadPoolNames() {
+        Set<String> names = new LinkedHashSet<>();
+        Enumeration<String> keys = PropertyUtil.getPropertyNames(KEY_PREFIX);
+        while (keys.hasMoreElements()) {
+            String name = threadPoolNameOf(keys.nextElement(), SIZE_SUFFIX);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public void onPropertiesChanged(Set<String> changedKeys) {
+        for (String key : changedKeys) {
+            String threadPoolName = threadPoolNameOf(key, SIZE_SUFFIX);
+            if (threadPoolName != null) {
+                if (!ThreadPoolFactory.refreshThreadPool(threadPoolName, this)
+                    && PropertyUtil.getProperty(key) != null) {
+                    createThreadPool(threadPoolName);
+                }
+            } else if (threadPoolNameOf(key, QUEUE_SUFFIX) != null
+                || threadPoolNameOf(key, QUEUE_CAPACITY_SUFFIX) != null
+                || threadPoolNameOf(key, REJECTION_SUFFIX) != null) {
+                logger.warn("property {} changed, it takes effect only when the threadPool is created", key);
+            }
+        }
+    }
+
+    private static String threadPoolNameOf(String key, String suffix) {
+        if (key.startsWith(KEY_PREFIX) && key.endsWith(suffix)
+            && key.length() > KEY_PREFIX.length() + suffix.length()) {
+            return key.substring(KEY_PREFIX.length(), key.length() - suffix.length());
+        }
+        return null;
+    }
+
+    private BlockingQueue<Runnable> queueOf(String threadPoolName) {
+        String queue = PropertyUtil.getProperty(KEY_PREFIX + threadPoolName + QUEUE_SUFFIX, "synchronous").trim();
+        int capacity = PropertyUtil.getPropertyOfInt(KEY_PREFIX + threadPoolName + QUEUE_CAPACITY_SUFFIX,
+            Integer.MAX_VALUE);
+        if ("synchronous".equalsIgnoreCase(queue)) {
+            return new SynchronousQueue<>(true);
+        } else if ("linked".equalsIgnoreCase(queue)) {
+            return new LinkedBlockingQueue<>(capacity);
+        } else if ("array".equalsIgnoreCase(queue)) {
+            if (capacity == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                    KEY_PREFIX + threadPoolName + QUEUE_CAPACITY_SUFFIX + " is required for array queue");
+            }
+            return new ArrayBlockingQueue<>(capacity);
+        }
+        throw new IllegalArgumentException("unknown queue type " + queue + " of threadPool " + threadPoolName);
+    }
+
+    private RejectedExecutionHandler rejectionOf(String threadPoolName) {
+        String rejection = PropertyUtil.getProperty(KEY_PREFIX + threadPoolName + REJECTION_SUFFIX);
+        if (StringUtils.isBlank(rejection) || "waiting".equalsIgnoreCase(rejection.trim())) {
+            return new WaitingEnqueuePolicy();
+        }
+        rejection = rejection.trim();
+        if ("abort".equalsIgnoreCase(rejection)) {
+            return new ThreadPoolExecutor.AbortPolicy();
+        } else if ("callerRuns".equalsIgnoreCase(rejection)) {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        } else if ("discard".equalsIgnoreCase(rejection)) {
+            return new ThreadPoolExecutor.DiscardPolicy();
+        } else if ("discardOldest".equalsIgnoreCase(rejection)) {
+            return new ThreadPoolExecutor.DiscardOldestPolicy();
+        }
+        throw new IllegalArgumentException("unknown rejection " + rejection + " of threadPool " + threadPoolName);
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.acticfox.common.tools.thredpool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 类的实现描述：应用关闭时在限定时间内关闭所有受管理的线程池，由AppContextListener在ContextClosedEvent时调用
+ *
+ * <pre>
+ * 1. 所有注册的Shutdownable（MultiTaskQueueThreadPool、RequestMerger、DataPipeline的分发线程）停止接收新任务，
+ *    各自的消费线程并行排空队列
+ * 2. ThreadPoolFactory创建的线程池停止接收新任务，等待已提交的任务执行完
+ * 两步共用一个截止时间，系统属性shutdown.timeoutSeconds，默认30秒
+ * 超时未处理完的调用shutdownNow，输出并返回各组件未处理的任务数
+ * 关闭后的线程池不再缓存，之后再次创建同名线程池时重新创建
+ * </pre>
+ */
+public class ShutdownCoordinator {
+
+    private final static Logger logger = LoggerFactory.getLogger(ShutdownCoordinator.class);
+
+    public static final String SHUTDOWN_TIMEOUT_PROPERTY = "shutdown.timeoutSeconds";
+
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private static final Set<Shutdownable> feeders = Collections.newSetFromMap(
+        new ConcurrentHashMap<Shutdownable, Boolean>());
+
+    public static void register(Shutdownable feeder) {
+        feeders.add(feeder);
+    }
+
+    public static void unregister(Shutdownable feeder) {
+        feeders.remove(feeder);
+    }
+
+    /**
+     * 按系统属性shutdown.timeoutSeconds指定的时间关闭
+     *
+     * @return 未处理完的组件及其未处理的任务数
+     */
+    public static Map<String, Integer> shutdown() {
+        return shutdown(Long.getLong(SHUTDOWN_TIMEOUT_PROPERTY, DEFAULT_SHUTDOWN_TIMEOUT_SECONDS), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 先排空所有Shutdownable，再关闭ThreadPoolFactory创建的线程池
+     *
+     * @param timeout 整体超时时间
+     * @param unit
+     * @return 未处理完的组件及其未处理的任务数
+     */
+    public static synchronized Map<String, Integer> shutdown(long timeout, TimeUnit unit) {
+        long startTime = System.currentTimeMillis();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Map<String, Integer> leftovers = new LinkedHashMap<>();
+
+        List<Shutdownable> shutdownFeeders = new ArrayList<>(feeders);
+        for (Shutdownable feeder : shutdownFeeders) {
+            feeder.shutdown();
+        }
+        for (Shutdownable feeder : shutdownFeeders) {
+            if (!awaitTermination(feeder, deadline)) {
+                leftovers.put(feeder.getName(), feeder.shutdownNow());
+            }
+            feeders.remove(feeder);
+        }
+
+        // 线程池在投递任务的组件排空后再关闭，否则排空时投递的任务会被丢弃
+        Map<String, ThreadPoolExecutor> threadPools = ThreadPoolFactory.getThreadPools();
+        for (ThreadPoolExecutor threadPoolExecutor : threadPools.values()) {
+            threadPoolExecutor.shutdown();
+        }
+        for (Entry<String, ThreadPoolExecutor> entry : threadPools.entrySet()) {
+            ThreadPoolExecutor threadPoolExecutor = entry.getValue();
+            if (!awaitTermination(threadPoolExecutor, deadline)) {
+                int activeCount = threadPoolExecutor.getActiveCount();
+                leftovers.put(entry.getKey(), activeCount + threadPoolExecutor.shutdownNow().size());
+            }
+        }
+
+        if (leftovers.isEmpty()) {
+            logger.info("shutdown done,feeders:{},threadPools:{},cost:{}ms", shutdownFeeders.size(),
+                threadPools.size(), System.currentTimeMillis() - startTime);
+        } else {
+            logger.warn("shutdown timeout after {}ms,leftover tasks:{}", System.currentTimeMillis() - startTime,
+                leftovers);
+        }
+        return leftovers;
+    }
+
+    private static boolean awaitTermination(Shutdownable feeder, long deadline) {
+        try {
+            return feeder.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // 保留中断标记，之后的等待立即返回
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean awaitTermination(ThreadPoolExecutor threadPoolExecutor, long deadline) {
+        try {
+            return threadPoolExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.acticfox.common.tools.thredpool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 类的实现描述：向线程池投递任务的组件（如MultiTaskQueueThreadPool、RequestMerger的消费线程），由ShutdownCoordinator统一关闭
+ *
+ * <pre>
+ * shutdown：停止接收新任务，已接收的任务继续处理，不阻塞
+ * awaitTermination：等待已接收的任务处理完、消费线程退出
+ * shutdownNow：超时后调用，停止消费线程，取消未处理的任务并返回其数量
+ * </pre>
+ */
+public interface Shutdownable {
+
+    /**
+     * @return 名称，用于输出未处理完的任务
+     */
+    String getName();
+
+    /**
+     * 停止接收新任务，已接收的任务继续处理
+     */
+    void shutdown();
+
+    /**
+     * 等待已接收的任务处理完
+     *
+     * @param timeout
+     * @param unit
+     * @return 处理完时返回true，超时返回false
+     * @throws InterruptedException
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 停止处理，取消未处理的任务
+     *
+     * @return 未处理的任务数
+     */
+    int shutdownNow();
+}
@@ -9,6 +9,8 @@ package com.github.acticfox.common.tools.thredpool;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -27,12 +29,20 @@ public class ThreadPoolFactory {
 
     private final static Logger logger = LoggerFactory.getLogger(ThreadPoolFactory.class);
 
-    private static Map<String, ThreadPoolExecutor> threadPoolMap = new HashMap<String, ThreadPoolExecutor>();
+    private static Map<String, ThreadPoolExecutor> threadPoolMap = new ConcurrentHashMap<String, ThreadPoolExecutor>();
 
     private static void updateThreadNumDynamically(String threadPoolName, ThreadPoolConfig threadPoolConfig,
                                                    ThreadPoolExecutor threadPoolExecutor) {
 
         int configedThreadNum = threadPoolConfig.getThreadNum(threadPoolName);
+        // 配置变更时可能与createThreadPool并发调整
+        synchronized (threadPoolExecutor) {
+            updateThreadNum(threadPoolName, configedThreadNum, threadPoolExecutor);
+        }
+    }
+
+    private static void updateThreadNum(String threadPoolName, int configedThreadNum,
+                                        ThreadPoolExecutor threadPoolExecutor) {
         int currThreadPoolThreadNum = threadPoolExecutor.getMaximumPoolSize();
 
         if (configedThreadNum != currThreadPoolThreadNum) {
@@ -42,8 +52,14 @@ public class ThreadPoolFactory {
             int poolSize = threadPoolExecutor.getPoolSize();
             int activeCount = threadPoolExecutor.getActiveCount();
 
-            threadPoolExecutor.setCorePoolSize(configedThreadNum);
-            threadPoolExecutor.setMaximumPoolSize(configedThreadNum);
+            // corePoolSize不能大于maximumPoolSize，扩容时先调整maximumPoolSize
+            if (configedThreadNum > maxPoolSize) {
+                threadPoolExecutor.setMaximumPoolSize(configedThreadNum);
+                threadPoolExecutor.setCorePoolSize(configedThreadNum);
+            } else {
+                threadPoolExecutor.setCorePoolSize(configedThreadNum);
+                threadPoolExecutor.setMaximumPoolSize(configedThreadNum);
+            }
 
             int newCorePoolSize = threadPoolExecutor.getCorePoolSize();
             int newMaxPoolSize = threadPoolExecutor.getMaximumPoolSize();
@@ -58,12 +74,54 @@ public class ThreadPoolFactory {
         }
     }
 
+    /**
+     * 按threadPoolConfig调整已创建线程池的线程数
+     *
+     * @param threadPoolName
+     * @param threadPoolConfig
+     * @return 线程池不存在时返回false
+     */
+    public static boolean refreshThreadPool(String threadPoolName, ThreadPoolConfig threadPoolConfig) {
+        ThreadPoolExecutor threadPoolExecutor = threadPoolMap.get(threadPoolName);
+        if (threadPoolExecutor == null) {
+            return false;
+        }
+        updateThreadNumDynamically(threadPoolName, threadPoolConfig, threadPoolExecutor);
+        return true;
+    }
+
+    public static ThreadPoolExecutor getThreadPool(String threadPoolName) {
+        return threadPoolMap.get(threadPoolName);
+    }
+
+    /**
+     * @return 已创建的线程池，供ShutdownCoordinator关闭
+     */
+    static Map<String, ThreadPoolExecutor> getThreadPools() {
+        return new HashMap<String, ThreadPoolExecutor>(threadPoolMap);
+    }
+
     public static ThreadPoolExecutor createThreadPool(String threadPoolName, ThreadPoolConfig threadPoolConfig) {
         return createThreadPool(threadPoolName, threadPoolConfig, null);
     }
 
     public static ThreadPoolExecutor createThreadPool(String threadPoolName, ThreadPoolConfig threadPoolConfig,
                                                       RejectedExecutionHandler handler) {
+        return createThreadPool(threadPoolName, threadPoolConfig, handler, null);
+    }
+
+    /**
+     * 创建线程池并缓存下来，同名线程池已存在时按threadPoolConfig调整线程数后直接返回，已关闭的线程池重新创建
+     *
+     * @param threadPoolName
+     * @param threadPoolConfig
+     * @param handler 为null时使用WaitingEnqueuePolicy
+     * @param workQueue 为null时使用SynchronousQueue
+     * @return
+     */
+    public static ThreadPoolExecutor createThreadPool(String threadPoolName, ThreadPoolConfig threadPoolConfig,
+                                                      RejectedExecutionHandler handler,
+                                                      BlockingQueue<Runnable> workQueue) {
         if (StringUtils.isBlank(threadPoolName)) {
             throw new IllegalArgumentException("threadPoolName is null");
         }
@@ -72,14 +130,14 @@ public class ThreadPoolFactory {
         }
 
         ThreadPoolExecutor threadPoolExecutor = threadPoolMap.get(threadPoolName);
-        if (threadPoolExecutor != null) {
+        if (threadPoolExecutor != null && !threadPoolExecutor.isShutdown()) {
             updateThreadNumDynamically(threadPoolName, threadPoolConfig, threadPoolExecutor);
             logger.info("return cached threadPool:{},currentThread:{}", threadPoolName, Thread.currentThread());
             return threadPoolExecutor;
         } else {
             synchronized (threadPoolMap) {
                 threadPoolExecutor = threadPoolMap.get(threadPoolName);
-                if (threadPoolExecutor != null) {
+                if (threadPoolExecutor != null && !threadPoolExecutor.isShutdown()) {
                     updateThreadNumDynamically(threadPoolName, threadPoolConfig, threadPoolExecutor);
                     logger.info("return cached threadPool:{},currentThread:{},in synchronized block", threadPoolName,
                         Thread.currentThread());
@@ -88,7 +146,8 @@ public class ThreadPoolFactory {
                     int initThreadNum = threadPoolConfig.getThreadNum(threadPoolName);
 
                     threadPoolExecutor = new ThreadPoolExecutor(initThreadNum, initThreadNum, 0L,
-                        TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(true), new NamedThreadFactory(
+                        TimeUnit.MILLISECONDS, workQueue == null ? new SynchronousQueue<Runnable>(true) : workQueue,
+                        new NamedThreadFactory(
                         threadPoolName), handler == null ? new WaitingEnqueuePolicy() : handler);
                     threadPoolMap.put(threadPoolName, threadPoolExecutor);
 
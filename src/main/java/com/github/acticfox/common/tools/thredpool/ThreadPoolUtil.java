@@ -4,11 +4,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,6 +86,80 @@ public class ThreadPoolUtil {
         return resultList;
     }
 
+    /**
+     * 将dataList按线程池的并发度切分为连续的数据段，每个数据段作为一个任务提交，当前调用线程等待所有数据段处理结束
+     *
+     * 单条数据处理异常不影响其它数据的处理，全部处理结束后抛出第一个异常
+     *
+     * @param dataList
+     * @param consumer
+     * @param executorService
+     * @param <T>
+     */
+    public static <T> void executeInChunks(List<T> dataList, Consumer<? super T> consumer,
+                                           ExecutorService executorService) {
+        int size = dataList.size();
+        if (size == 0) {
+            return;
+        }
+        int chunkNum = Math.min(size, parallelismOf(executorService));
+        CountDownLatch latch = new CountDownLatch(chunkNum);
+        AtomicReference<Throwable> firstThrowable = new AtomicReference<Throwable>();
+
+        for (int n = 0; n < chunkNum; n++) {
+            final List<T> chunk = dataList.subList((int)((long)size * n / chunkNum),
+                (int)((long)size * (n + 1) / chunkNum));
+            try {
+                executorService.execute(() -> {
+                    try {
+                        for (T t : chunk) {
+                            try {
+                                consumer.accept(t);
+                            } catch (Throwable ex) {
+                                firstThrowable.compareAndSet(null, ex);
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                firstThrowable.compareAndSet(null, ex);
+                latch.countDown();
+            }
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        Throwable throwable = firstThrowable.get();
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException)throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error)throwable;
+        } else if (throwable != null) {
+            throw new RuntimeException(throwable.getMessage(), throwable);
+        }
+    }
+
+    private static int parallelismOf(ExecutorService executorService) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (executorService instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor)executorService;
+            // 最大线程数不受限的线程池（如CachedThreadPool）按CPU核数切分
+            return Math.max(1, Math.min(threadPoolExecutor.getMaximumPoolSize(),
+                Math.max(threadPoolExecutor.getCorePoolSize(), processors)));
+        }
+        if (executorService instanceof ForkJoinPool) {
+            return ((ForkJoinPool)executorService).getParallelism();
+        }
+        return processors;
+    }
+
     /**
      * 获取第一个返回的非null的结果，即获取处理最快的结果，忽略调用异常
      *
@@ -1,22 +1,29 @@
 package com.github.acticfox.common.tools.thredpool;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
- * 类的实现描述：等待加入队列
+ * 类的实现描述：等待加入队列，线程池已shutdown或等待时被中断则抛出RejectedExecutionException，任务不会被静默丢弃
  *
  * @author fanyong.kfy 2018-02-13 14:15:37
  */
 public class WaitingEnqueuePolicy implements RejectedExecutionHandler {
     @Override
     public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("threadPool is shutdown,task " + r + " rejected");
+        }
         try {
-            if (!executor.isShutdown()) {
-                executor.getQueue().put(r);
-            }
+            executor.getQueue().put(r);
         } catch (InterruptedException e) {
-            throw new RuntimeException(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting to enqueue task " + r, e);
+        }
+        // 入队前检查与入队之间线程池可能已shutdown且没有线程再取队列，撤回任务；撤回失败说明已被取走执行
+        if (executor.isShutdown() && executor.getQueue().remove(r)) {
+            throw new RejectedExecutionException("threadPool is shutdown,task " + r + " rejected");
         }
     }
 }
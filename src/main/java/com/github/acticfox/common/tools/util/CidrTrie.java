@@ -0,0 +1,125 @@
+package com.github.acticfox.common.tools.util;
+
+import java.util.Arrays;
+
+/**
+ * 类的实现描述：CIDR前缀集合，二叉前缀树的节点保存在int数组中，查询时只做位运算和数组访问，不创建对象
+ *
+ * <pre>
+ * 节点0为IPv4的根，节点1为IPv6的根，left/right为子节点下标（0表示无子节点），terminal表示该节点对应一个已添加的前缀
+ * IPv4映射的IPv6地址（::ffff:a.b.c.d）按IPv4匹配
+ * 构建完成后只读，可在多线程中查询
+ * </pre>
+ */
+final class CidrTrie {
+
+    private static final int IPV4_ROOT = 0;
+
+    private static final int IPV6_ROOT = 1;
+
+    private int[] left = new int[64];
+
+    private int[] right = new int[64];
+
+    private boolean[] terminal = new boolean[64];
+
+    private int size = 2;
+
+    /**
+     * 添加CIDR（如10.0.0.0/8、2001:db8::/32）或单个IP
+     *
+     * @param cidr
+     * @throws IllegalArgumentException 格式不合法
+     */
+    void add(String cidr) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        int addressEnd = slash < 0 ? value.length() : slash;
+        long ipv4 = IPUtil.parseIPv4(value, 0, addressEnd);
+        long[] ipv6 = new long[2];
+        if (ipv4 < 0 && !IPUtil.parseIPv6(value, 0, addressEnd, ipv6)) {
+            throw new IllegalArgumentException("illegal cidr: " + cidr);
+        }
+        int maxLength = ipv4 >= 0 ? 32 : 128;
+        int prefixLength = maxLength;
+        if (slash >= 0) {
+            try {
+                prefixLength = Integer.parseInt(value.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("illegal cidr: " + cidr, e);
+            }
+            if (prefixLength < 0 || prefixLength > maxLength) {
+                throw new IllegalArgumentException("illegal cidr: " + cidr);
+            }
+        }
+
+        int node = ipv4 >= 0 ? IPV4_ROOT : IPV6_ROOT;
+        for (int i = 0; i < prefixLength && !terminal[node]; i++) {
+            boolean bit = ipv4 >= 0 ? ipv4Bit((int) ipv4, i) : ipv6Bit(ipv6[0], ipv6[1], i);
+            int child = bit ? right[node] : left[node];
+            if (child == 0) {
+                child = newNode();
+                if (bit) {
+                    right[node] = child;
+                } else {
+                    left[node] = child;
+                }
+            }
+            node = child;
+        }
+        // 已被更短的前缀覆盖时无需再添加
+        terminal[node] = true;
+    }
+
+    private int newNode() {
+        if (size == left.length) {
+            left = Arrays.copyOf(left, size * 2);
+            right = Arrays.copyOf(right, size * 2);
+            terminal = Arrays.copyOf(terminal, size * 2);
+        }
+        return size++;
+    }
+
+    boolean containsIPv4(int address) {
+        int node = IPV4_ROOT;
+        for (int i = 0; i < 32; i++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = ipv4Bit(address, i) ? right[node] : left[node];
+            if (node == 0) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    boolean containsIPv6(long high, long low) {
+        if (high == 0 && (low >>> 32) == 0xFFFFL) {
+            return containsIPv4((int) low);
+        }
+        int node = IPV6_ROOT;
+        for (int i = 0; i < 128; i++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = ipv6Bit(high, low, i) ? right[node] : left[node];
+            if (node == 0) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    boolean isEmpty() {
+        return size == 2 && !terminal[IPV4_ROOT] && !terminal[IPV6_ROOT];
+    }
+
+    private static boolean ipv4Bit(int address, int i) {
+        return ((address >>> (31 - i)) & 1) != 0;
+    }
+
+    private static boolean ipv6Bit(long high, long low, int i) {
+        return i < 64 ? ((high >>> (63 - i)) & 1) != 0 : ((low >>> (127 - i)) & 1) != 0;
+    }
+}
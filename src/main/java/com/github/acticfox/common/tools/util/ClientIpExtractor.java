@@ -0,0 +1,148 @@
+package com.github.acticfox.common.tools.util;
+
+import java.util.Collection;
+import java.util.Objects;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 类的实现描述：根据可信代理的CIDR列表获取客户端真实IP
+ *
+ * <pre>
+ * 1. 直连地址（remoteAddr）不是可信代理时，转发头可被客户端伪造，直接返回直连地址
+ * 2. 否则从右向左扫描转发头（默认X-Forwarded-For），跳过可信代理，第一个非可信代理的地址即客户端IP
+ * 3. 遇到不合法的地址时停止，返回其右侧最近的地址；全部为可信代理时返回最左侧的地址
+ * 在原字符串上按下标扫描，不拆分数组，不创建InetAddress，只在返回结果时截取一次字符串
+ * </pre>
+ */
+public class ClientIpExtractor {
+
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private static final ThreadLocal<long[]> IPV6_BUFFER = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    private final CidrTrie trustedProxies = new CidrTrie();
+
+    private final String forwardedHeader;
+
+    /**
+     * @param trustedProxies 可信代理，CIDR（如10.0.0.0/8）或单个IP
+     */
+    public ClientIpExtractor(Collection<String> trustedProxies) {
+        this(trustedProxies, X_FORWARDED_FOR);
+    }
+
+    /**
+     * @param trustedProxies 可信代理，CIDR（如10.0.0.0/8）或单个IP
+     * @param forwardedHeader 逗号分隔的转发地址头
+     * @throws IllegalArgumentException CIDR格式不合法
+     */
+    public ClientIpExtractor(Collection<String> trustedProxies, String forwardedHeader) {
+        Objects.requireNonNull(trustedProxies, "trustedProxies is null");
+        Objects.requireNonNull(forwardedHeader, "forwardedHeader is null");
+        for (String cidr : trustedProxies) {
+            this.trustedProxies.add(cidr);
+        }
+        this.forwardedHeader = forwardedHeader;
+    }
+
+    public String getClientIP(HttpServletRequest request) {
+        return getClientIP(request.getRemoteAddr(), request.getHeader(forwardedHeader));
+    }
+
+    /**
+     * @param remoteAddr 直连地址
+     * @param forwardedFor 逗号分隔的转发地址，可为null
+     * @return 客户端IP
+     */
+    public String getClientIP(String remoteAddr, String forwardedFor) {
+        if (remoteAddr == null || forwardedFor == null || !isTrustedProxy(remoteAddr, 0, remoteAddr.length())) {
+            return remoteAddr;
+        }
+
+        String client = remoteAddr;
+        int end = forwardedFor.length();
+        while (end > 0) {
+            int start = forwardedFor.lastIndexOf(',', end - 1) + 1;
+            int tokenStart = start;
+            int tokenEnd = end;
+            while (tokenStart < tokenEnd && forwardedFor.charAt(tokenStart) <= ' ') {
+                tokenStart++;
+            }
+            while (tokenEnd > tokenStart && forwardedFor.charAt(tokenEnd - 1) <= ' ') {
+                tokenEnd--;
+            }
+
+            if (tokenStart < tokenEnd) {
+                int addressStart = tokenStart;
+                int addressEnd = addressEnd(forwardedFor, tokenStart, tokenEnd);
+                if (forwardedFor.charAt(tokenStart) == '[') {
+                    addressStart++;
+                }
+                int trust = trust(forwardedFor, addressStart, addressEnd);
+                if (trust < 0) {
+                    return client;
+                }
+                client = forwardedFor.substring(addressStart, addressEnd);
+                if (trust == 0) {
+                    return client;
+                }
+            }
+            end = start - 1;
+        }
+        return client;
+    }
+
+    /**
+     * 去掉端口：[v6]:port、v4:port
+     */
+    private static int addressEnd(String s, int start, int end) {
+        if (s.charAt(start) == '[') {
+            int close = s.indexOf(']', start);
+            return close < 0 || close >= end ? end : close;
+        }
+        // 只有一个':'时为IPv4加端口，多个':'为IPv6
+        int colon = -1;
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == ':') {
+                if (colon >= 0) {
+                    return end;
+                }
+                colon = i;
+            }
+        }
+        return colon < 0 ? end : colon;
+    }
+
+    /**
+     * @return -1不合法，0非可信代理，1可信代理
+     */
+    private int trust(CharSequence s, int start, int end) {
+        long ipv4 = IPUtil.parseIPv4(s, start, end);
+        if (ipv4 >= 0) {
+            return trustedProxies.containsIPv4((int) ipv4) ? 1 : 0;
+        }
+        long[] ipv6 = IPV6_BUFFER.get();
+        if (IPUtil.parseIPv6(s, start, end, ipv6)) {
+            return trustedProxies.containsIPv6(ipv6[0], ipv6[1]) ? 1 : 0;
+        }
+        return -1;
+    }
+
+    /**
+     * @param ip IPv4或IPv6地址
+     * @return 是否为可信代理，地址不合法时返回false
+     */
+    public boolean isTrustedProxy(String ip) {
+        return isTrustedProxy(ip, 0, ip.length());
+    }
+
+    private boolean isTrustedProxy(CharSequence s, int start, int end) {
+        return trust(s, start, end) == 1;
+    }
+}
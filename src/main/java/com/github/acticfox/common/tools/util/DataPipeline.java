@@ -1,15 +1,28 @@
 package com.github.acticfox.common.tools.util;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.stream.Collectors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.acticfox.common.tools.thredpool.ShutdownCoordinator;
+import com.github.acticfox.common.tools.thredpool.Shutdownable;
 import com.github.acticfox.common.tools.thredpool.ThreadPoolUtil;
 
 /**
@@ -25,6 +38,40 @@ public class DataPipeline<T> {
 
     private DataPipeline() {}
 
+    /**
+     * 关闭管道中的SpillDispatcher和重试分发线程：SpillDispatcher不再接收数据，内存中未提交的数据写入日志；
+     * 重试分发线程提交完等待中的重试后退出，超时未提交的重试交给deadLetterHandler
+     *
+     * @param timeout
+     * @param unit
+     * @return 全部关闭时返回true
+     * @throws InterruptedException
+     */
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (HandlerConfig<T> handlerConfig : handlerConfigs) {
+            if (handlerConfig.spillDispatcher != null) {
+                handlerConfig.spillDispatcher.shutdown();
+            }
+            handlerConfig.dataHandler.shutdownRetries();
+        }
+        boolean terminated = true;
+        for (HandlerConfig<T> handlerConfig : handlerConfigs) {
+            if (handlerConfig.spillDispatcher != null) {
+                SpillDispatcher<T> spillDispatcher = handlerConfig.spillDispatcher;
+                if (!spillDispatcher.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    spillDispatcher.shutdownNow();
+                    terminated = false;
+                }
+                ShutdownCoordinator.unregister(spillDispatcher);
+            }
+            if (!handlerConfig.dataHandler.awaitRetries(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                terminated = false;
+            }
+        }
+        return terminated;
+    }
+
     public static <T> DataPipeline<T> newPipeline() {
         return new DataPipeline<>();
     }
@@ -35,13 +82,53 @@ public class DataPipeline<T> {
         });
     }
 
-    private void handleData(List<T> dataList, HandlerConfig handlerConfig) {
+    /**
+     * 以Flow.Subscriber的方式接收数据：每次向上游请求batchSize条，凑满一批后调用pushData，处理完成后再请求下一批，
+     * 上游完成时处理剩余的数据
+     *
+     * @param batchSize
+     * @return
+     */
+    public Flow.Subscriber<T> asSubscriber(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than zero");
+        }
+        return new PipelineSubscriber(batchSize);
+    }
+
+    /**
+     * 订阅publisher，数据按batchSize分批推入当前管道
+     *
+     * @param publisher
+     * @param batchSize
+     */
+    public void subscribe(Flow.Publisher<T> publisher, int batchSize) {
+        Objects.requireNonNull(publisher, "publisher is null");
+        publisher.subscribe(asSubscriber(batchSize));
+    }
+
+    /**
+     * 创建一个可作为handler添加到管道中的Flow.Publisher，handler处理的数据会发布给下游订阅者，
+     * 下游订阅者的缓冲区满时handler阻塞，从而将背压传递到当前管道
+     *
+     * @param executor 向订阅者投递数据的线程池
+     * @param maxBufferCapacity 每个订阅者的最大缓冲数量
+     * @param <T>
+     * @return
+     */
+    public static <T> DataPublisher<T> newPublisher(Executor executor, int maxBufferCapacity) {
+        Objects.requireNonNull(executor, "executor is null");
+        return new DataPublisher<>(new SubmissionPublisher<>(executor, maxBufferCapacity));
+    }
+
+    private void handleData(List<T> dataList, HandlerConfig<T> handlerConfig) {
         if (handlerConfig.handlerTransferType == HandlerTransferType.SYNC) {
-            List<Callable<Void>> callableList = dataList.stream().map((d) -> (Callable<Void>)() -> {
-                handlerConfig.dataHandler.handle(d);
-                return null;
-            }).collect(Collectors.toList());
-            ThreadPoolUtil.executeInThreadPool(callableList, handlerConfig.executorService);
+            ThreadPoolUtil.executeInChunks(dataList, handlerConfig.dataHandler::handle,
+                handlerConfig.executorService);
+        } else if (handlerConfig.spillDispatcher != null) {
+            dataList.forEach((d) -> {
+                handlerConfig.spillDispatcher.dispatch(d);
+            });
         } else {
             dataList.forEach((d) -> {
                 handlerConfig.executorService.execute(() -> {
@@ -51,29 +138,113 @@ public class DataPipeline<T> {
         }
     }
 
-    public DataPipeline addHandler(DataHandler<T> dataHandler, ExecutorService executorService) {
+    public DataPipeline<T> addHandler(DataHandler<T> dataHandler, ExecutorService executorService) {
         return this.addHandler(dataHandler, executorService, HandlerTransferType.SYNC);
     }
 
-    public DataPipeline addHandler(DataHandler<T> dataHandler, ExecutorService executorService,
+    public DataPipeline<T> addHandler(DataHandler<T> dataHandler, ExecutorService executorService,
         HandlerTransferType handlerTransferType) {
         Objects.requireNonNull(dataHandler, "dataHandler is null");
         Objects.requireNonNull(executorService, "executorService is null");
         Objects.requireNonNull(handlerTransferType, "handlerTransferType is null");
 
-        HandlerConfig config = new HandlerConfig();
-        config.dataHandler = new DataHandlerWrapper(dataHandler);
+        HandlerConfig<T> config = new HandlerConfig<>();
+        config.dataHandler = new DataHandlerWrapper<>(dataHandler);
         config.executorService = executorService;
         config.handlerTransferType = handlerTransferType;
         handlerConfigs.add(config);
         return this;
     }
 
+    /**
+     * 添加带重试策略的handler，handler抛出异常后按retryPolicy延迟重试，到期后由当前handler的重试分发线程重新提交到
+     * executorService，重试次数用完或等待中的重试超过retryPolicy.maxPendingRetries后交给deadLetterHandler处理；
+     * 重试分发线程注册到ShutdownCoordinator，也可调用close关闭
+     *
+     * 注意：SYNC类型的handler只等待首次处理结束，不等待延迟重试
+     *
+     * @param dataHandler
+     * @param executorService
+     * @param handlerTransferType
+     * @param retryPolicy
+     * @param deadLetterHandler 可为null
+     * @return
+     */
+    public DataPipeline<T> addHandler(DataHandler<T> dataHandler, ExecutorService executorService,
+        HandlerTransferType handlerTransferType, RetryPolicy retryPolicy, DeadLetterHandler<T> deadLetterHandler) {
+        Objects.requireNonNull(dataHandler, "dataHandler is null");
+        Objects.requireNonNull(executorService, "executorService is null");
+        Objects.requireNonNull(handlerTransferType, "handlerTransferType is null");
+        Objects.requireNonNull(retryPolicy, "retryPolicy is null");
+        if (retryPolicy.maxAttempts <= 0) {
+            throw new IllegalArgumentException("retryPolicy.maxAttempts must be greater than zero");
+        }
+        if (retryPolicy.maxPendingRetries <= 0) {
+            throw new IllegalArgumentException("retryPolicy.maxPendingRetries must be greater than zero");
+        }
+
+        HandlerConfig<T> config = new HandlerConfig<>();
+        config.dataHandler = new DataHandlerWrapper<>(dataHandler, executorService, retryPolicy, deadLetterHandler);
+        config.executorService = executorService;
+        config.handlerTransferType = handlerTransferType;
+        handlerConfigs.add(config);
+        return this;
+    }
+
+    /**
+     * 添加ASYNC类型的handler，pushData不直接提交到线程池，数据先放入内存队列，内存队列中的数据达到
+     * spillConfig.maxInMemoryCount后，内存队列连同后续数据写入磁盘日志，由分发线程按顺序提交到线程池，线程池满时pushData不会阻塞；
+     * 日志中上次未处理完的数据会在添加handler时开始回放，调用close时内存中的数据写入日志
+     *
+     * @param dataHandler
+     * @param executorService
+     * @param spillConfig
+     * @return
+     */
+    public DataPipeline<T> addHandler(DataHandler<T> dataHandler, ExecutorService executorService,
+        SpillConfig<T> spillConfig) {
+        Objects.requireNonNull(dataHandler, "dataHandler is null");
+        Objects.requireNonNull(executorService, "executorService is null");
+        Objects.requireNonNull(spillConfig, "spillConfig is null");
+        Objects.requireNonNull(spillConfig.journalFile, "spillConfig.journalFile is null");
+        Objects.requireNonNull(spillConfig.serializer, "spillConfig.serializer is null");
+        if (spillConfig.maxInMemoryCount <= 0) {
+            throw new IllegalArgumentException("spillConfig.maxInMemoryCount must be greater than zero");
+        }
+
+        SpillJournal<T> journal;
+        try {
+            journal = new SpillJournal<>(spillConfig.journalFile, spillConfig.serializer,
+                spillConfig.mappedRegionSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        HandlerConfig<T> config = new HandlerConfig<>();
+        config.dataHandler = new DataHandlerWrapper<>(dataHandler);
+        config.executorService = executorService;
+        config.handlerTransferType = HandlerTransferType.ASYNC;
+        config.spillDispatcher = new SpillDispatcher<>(config.dataHandler, executorService, journal,
+            spillConfig.maxInMemoryCount);
+        handlerConfigs.add(config);
+        return this;
+    }
+
     @FunctionalInterface
     public interface DataHandler<T> {
         void handle(T t);
     }
 
+    /**
+     * 重试次数用完后仍处理失败的数据的处理器
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public interface DeadLetterHandler<T> {
+        void handle(T t, Throwable throwable);
+    }
+
     public enum HandlerTransferType {
         /**
          * 当前handler针对每条数据处理都处理完才进入下一个handler进行处理
@@ -85,28 +256,690 @@ public class DataPipeline<T> {
         ASYNC;
     }
 
+    public static class DataPublisher<T> implements DataHandler<T>, Flow.Publisher<T>, AutoCloseable {
+
+        private final SubmissionPublisher<T> publisher;
+
+        private DataPublisher(SubmissionPublisher<T> publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void handle(T t) {
+            publisher.submit(t);
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            publisher.subscribe(subscriber);
+        }
+
+        /**
+         * 通知所有订阅者数据已经发布完成
+         */
+        @Override
+        public void close() {
+            publisher.close();
+        }
+    }
+
+    private class PipelineSubscriber implements Flow.Subscriber<T> {
+
+        private final int batchSize;
+
+        private final List<T> buffer;
+
+        private Flow.Subscription subscription;
+
+        PipelineSubscriber(int batchSize) {
+            this.batchSize = batchSize;
+            this.buffer = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(T item) {
+            buffer.add(item);
+            if (buffer.size() >= batchSize) {
+                try {
+                    flush();
+                } catch (RuntimeException ex) {
+                    logger.error("pipelineSubscriber pushData error,subscription canceled,errorMsg:{}",
+                        ex.getMessage(), ex);
+                    subscription.cancel();
+                    return;
+                }
+                subscription.request(batchSize);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.error("pipelineSubscriber upstream error,errorMsg:{}", throwable.getMessage(), throwable);
+            flush();
+        }
+
+        @Override
+        public void onComplete() {
+            flush();
+        }
+
+        /**
+         * pushData返回时数据已全部交给handler，buffer可以直接复用
+         */
+        private void flush() {
+            if (!buffer.isEmpty()) {
+                try {
+                    pushData(buffer);
+                } finally {
+                    buffer.clear();
+                }
+            }
+        }
+    }
+
+    public static class RetryPolicy {
+
+        /**
+         * 最多处理次数，包含首次处理
+         */
+        private int maxAttempts = 3;
+
+        private long initialDelayMillis = 100;
+
+        private double multiplier = 2;
+
+        private long maxDelayMillis = 10000;
+
+        /**
+         * 等待中和等待提交的重试数上限，超过后数据直接交给deadLetterHandler
+         */
+        private int maxPendingRetries = 10000;
+
+        /**
+         * 第attempt次处理失败后，到下一次处理的等待时间
+         *
+         * @param attempt
+         * @return
+         */
+        long delayMillisOf(int attempt) {
+            double delay = initialDelayMillis * Math.pow(multiplier, attempt - 1);
+            return (long)Math.min(delay, maxDelayMillis);
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getInitialDelayMillis() {
+            return initialDelayMillis;
+        }
+
+        public void setInitialDelayMillis(long initialDelayMillis) {
+            this.initialDelayMillis = initialDelayMillis;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public long getMaxDelayMillis() {
+            return maxDelayMillis;
+        }
+
+        public void setMaxDelayMillis(long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+        }
+
+        public int getMaxPendingRetries() {
+            return maxPendingRetries;
+        }
+
+        public void setMaxPendingRetries(int maxPendingRetries) {
+            this.maxPendingRetries = maxPendingRetries;
+        }
+    }
+
+    public static class SpillConfig<T> {
+
+        /**
+         * 内存中等待提交到线程池的数据条数上限，超过后数据写入磁盘日志
+         */
+        private int maxInMemoryCount = 1024;
+
+        private File journalFile;
+
+        private SpillJournal.Serializer<T> serializer;
+
+        private int mappedRegionSize = SpillJournal.DEFAULT_REGION_SIZE;
+
+        public int getMaxInMemoryCount() {
+            return maxInMemoryCount;
+        }
+
+        public void setMaxInMemoryCount(int maxInMemoryCount) {
+            this.maxInMemoryCount = maxInMemoryCount;
+        }
+
+        public File getJournalFile() {
+            return journalFile;
+        }
+
+        public void setJournalFile(File journalFile) {
+            this.journalFile = journalFile;
+        }
+
+        public SpillJournal.Serializer<T> getSerializer() {
+            return serializer;
+        }
+
+        public void setSerializer(SpillJournal.Serializer<T> serializer) {
+            this.serializer = serializer;
+        }
+
+        public int getMappedRegionSize() {
+            return mappedRegionSize;
+        }
+
+        public void setMappedRegionSize(int mappedRegionSize) {
+            this.mappedRegionSize = mappedRegionSize;
+        }
+    }
+
     private class HandlerConfig<T> {
-        DataHandler<T> dataHandler;
+        DataHandlerWrapper<T> dataHandler;
         ExecutorService executorService;
         HandlerTransferType handlerTransferType;
+        SpillDispatcher<T> spillDispatcher;
+    }
+
+    /**
+     * 生产者只把数据放入有界的内存队列，内存队列满时将内存队列中的数据连同后续数据写入SpillJournal，直到日志被读空，
+     * 不调用线程池，不会被线程池阻塞；由单独的分发线程按顺序从内存队列、日志中取数据提交到线程池，线程池满时只阻塞分发线程
+     *
+     * 内存队列和日志不会同时有数据，写入顺序即提交顺序，关闭时内存队列中的数据写入空日志，重启回放的顺序不变；
+     * 数据提交成功后才移除，提交被线程池拒绝时保留并稍后重试，日志中无法反序列化的数据记录错误后跳过
+     * shutdown后不再接收数据，分发线程将内存队列中剩余的数据写入日志后退出并关闭日志，下次启动时回放
+     * 创建后注册到ShutdownCoordinator，应用关闭时在线程池关闭前停止分发，也可调用DataPipeline.close关闭
+     */
+    private static class SpillDispatcher<T> implements Shutdownable {
+        private final DataHandler<T> dataHandler;
+        private final ExecutorService executorService;
+        private final SpillJournal<T> journal;
+        private final int maxInMemoryCount;
+        private final LinkedList<T> memoryQueue = new LinkedList<>();
+        private final Thread dispatcher;
+        private volatile boolean shutdown;
+
+        /**
+         * 内存队列整体转入日志的次数，分发线程据此判断正在提交的数据已经从内存队列移到了日志头部
+         */
+        private long spillCount;
+
+        private static final int DISPATCH_ERROR_PARKING_TIME = 1000;
+
+        /**
+         * shutdownNow中断分发线程后等待其把内存队列写入日志的最长时间
+         */
+        private static final long PERSIST_WAIT_MILLIS = 1000;
+
+        SpillDispatcher(DataHandler<T> dataHandler, ExecutorService executorService, SpillJournal<T> journal,
+            int maxInMemoryCount) {
+            this.dataHandler = dataHandler;
+            this.executorService = executorService;
+            this.journal = journal;
+            this.maxInMemoryCount = maxInMemoryCount;
+
+            dispatcher = new Thread(this::dispatchLoop);
+            dispatcher.setName("dataPipeline_spill_dispatcher_" + journal.getFile().getName());
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+            ShutdownCoordinator.register(this);
+        }
+
+        void dispatch(T t) {
+            synchronized (this) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("spill journal " + journal.getFile() + " is shutdown");
+                }
+                try {
+                    if (!journal.isEmpty()) {
+                        journal.append(t);
+                    } else if (memoryQueue.size() < maxInMemoryCount) {
+                        memoryQueue.addLast(t);
+                    } else {
+                        spillMemoryQueue();
+                        journal.append(t);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+                notifyAll();
+            }
+        }
+
+        /**
+         * 日志为空时调用，内存队列中的数据按顺序写入日志，之后的数据都追加在日志中，直到日志被读空
+         */
+        private void spillMemoryQueue() throws IOException {
+            spillCount++;
+            while (!memoryQueue.isEmpty()) {
+                journal.append(memoryQueue.peekFirst());
+                memoryQueue.pollFirst();
+            }
+        }
+
+        private void dispatchLoop() {
+            try {
+                while (true) {
+                    T t;
+                    boolean fromJournal;
+                    long spilled;
+                    synchronized (this) {
+                        while (!shutdown && memoryQueue.isEmpty() && journal.isEmpty()) {
+                            wait();
+                        }
+                        if (shutdown) {
+                            return;
+                        }
+                        fromJournal = memoryQueue.isEmpty();
+                        t = fromJournal ? null : memoryQueue.peekFirst();
+                        spilled = spillCount;
+                    }
+                    if (fromJournal) {
+                        try {
+                            t = journal.peek();
+                        } catch (SpillJournal.CorruptedRecordException ex) {
+                            logger.error("spill journal:{} skip corrupted record,errorMsg:{}", journal.getFile(),
+                                ex.getMessage(), ex);
+                            removeHead(true);
+                            continue;
+                        }
+                    }
+                    try {
+                        submit(t);
+                    } catch (RuntimeException ex) {
+                        // dataHandler已经包装过不会抛出异常，这里只会是线程池拒绝或拒绝策略等待入队时被中断，数据没有提交
+                        if (shutdown) {
+                            return;
+                        }
+                        logger.error("spill journal:{} submit rejected,retry later,errorMsg:{}", journal.getFile(),
+                            ex.getMessage(), ex);
+                        LockSupport.parkUntil(System.currentTimeMillis() + DISPATCH_ERROR_PARKING_TIME);
+                        continue;
+                    }
+                    // 只有分发线程移除数据，刚提交的数据仍在内存队列头部，或者已随内存队列转入日志头部
+                    synchronized (this) {
+                        removeHead(fromJournal || spilled != spillCount);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ex) {
+                logger.error("spill journal:{} dispatch error,errorMsg:{}", journal.getFile(), ex.getMessage(), ex);
+            } finally {
+                persistAndClose();
+            }
+        }
+
+        private synchronized void removeHead(boolean fromJournal) throws IOException {
+            if (fromJournal) {
+                journal.remove();
+            } else {
+                memoryQueue.pollFirst();
+            }
+        }
+
+        private void submit(T t) {
+            executorService.execute(() -> dataHandler.handle(t));
+        }
+
+        /**
+         * 内存队列中有数据时日志一定为空，剩余的数据按顺序写入日志，重启回放时顺序不变；
+         * FileChannel在线程带有中断标记时会被关闭，写入前清除中断标记，写完后恢复
+         */
+        private synchronized void persistAndClose() {
+            shutdown = true;
+            int persisted = memoryQueue.size();
+            boolean interrupted = Thread.interrupted();
+            try {
+                spillMemoryQueue();
+                journal.close();
+            } catch (IOException e) {
+                logger.error("spill journal:{} close error,errorMsg:{}", journal.getFile(), e.getMessage(), e);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            logger.info("spill journal:{} closed,persisted from memory:{},total:{}", journal.getFile(), persisted,
+                journal.size());
+        }
+
+        @Override
+        public String getName() {
+            return dispatcher.getName();
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+            notifyAll();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            unit.timedJoin(dispatcher, timeout);
+            return !dispatcher.isAlive();
+        }
+
+        /**
+         * 中断阻塞在线程池上的分发线程，并等待其把内存队列中的数据写入日志后返回，
+         * 分发线程为守护线程，不等待时JVM可能在写入前退出
+         *
+         * @return 0，未提交的数据已写入日志，不会丢失
+         */
+        @Override
+        public int shutdownNow() {
+            shutdown();
+            dispatcher.interrupt();
+            try {
+                dispatcher.join(PERSIST_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (dispatcher.isAlive()) {
+                logger.warn("spill journal:{} dispatcher not stopped after {}ms,memory queue not persisted yet",
+                    journal.getFile(), PERSIST_WAIT_MILLIS);
+            }
+            return 0;
+        }
     }
 
     private class DataHandlerWrapper<T> implements DataHandler<T> {
         DataHandler<T> dataHandler;
+        ExecutorService executorService;
+        RetryPolicy retryPolicy;
+        DeadLetterHandler<T> deadLetterHandler;
+        final AtomicInteger pendingRetries = new AtomicInteger();
+        volatile RetryDispatcher retryDispatcher;
 
         public DataHandlerWrapper(DataHandler<T> dataHandler) {
             this.dataHandler = dataHandler;
         }
 
+        public DataHandlerWrapper(DataHandler<T> dataHandler, ExecutorService executorService,
+            RetryPolicy retryPolicy, DeadLetterHandler<T> deadLetterHandler) {
+            this.dataHandler = dataHandler;
+            this.executorService = executorService;
+            this.retryPolicy = retryPolicy;
+            this.deadLetterHandler = deadLetterHandler;
+        }
+
         @Override
         public void handle(T t) {
+            handle(t, 1);
+        }
+
+        private void handle(T t, int attempt) {
             try {
                 this.dataHandler.handle(t);
             } catch (Exception ex) {
-                logger.error("dataHandler:{},exception caught,errorMsg:{}", dataHandler.getClass(), ex.getMessage(),
-                    ex);
+                if (retryPolicy == null) {
+                    ErrorReporter.getDefault().report(logger, ex, "dataHandler:{},exception caught",
+                        dataHandler.getClass());
+                    return;
+                }
+                if (attempt < retryPolicy.maxAttempts) {
+                    long delayMillis = retryPolicy.delayMillisOf(attempt);
+                    logger.warn("dataHandler:{},attempt:{} failed,retry after {}ms,errorMsg:{}",
+                        dataHandler.getClass(), attempt, delayMillis, ex.getMessage());
+                    scheduleRetry(t, attempt + 1, delayMillis);
+                    return;
+                }
+                logger.warn("dataHandler:{},attempt:{} failed,no more retries,errorMsg:{}", dataHandler.getClass(),
+                    attempt, ex.getMessage());
+                deadLetter(t, ex);
+            }
+        }
+
+        /**
+         * 重试等待期间不占用工作线程；到期后定时器只把重试放入当前handler的就绪队列（不阻塞，放不下时转入死信），
+         * 由当前handler的重试分发线程提交到线程池，线程池满时只阻塞该线程，不影响其他管道的重试定时；
+         * 等待中和就绪的重试数之和不超过retryPolicy.maxPendingRetries，超过时直接转入死信
+         */
+        private void scheduleRetry(T t, int attempt, long delayMillis) {
+            if (pendingRetries.incrementAndGet() > retryPolicy.maxPendingRetries) {
+                pendingRetries.decrementAndGet();
+                deadLetter(t, new RejectedExecutionException(
+                    "pending retries exceed " + retryPolicy.maxPendingRetries));
+                return;
+            }
+            Retry<T> retry = new Retry<>(t, attempt);
+            RetryDispatcher dispatcher = retryDispatcher();
+            try {
+                RetryTimerHolder.RETRY_TIMER.schedule(() -> {
+                    if (!dispatcher.offer(retry)) {
+                        pendingRetries.decrementAndGet();
+                        deadLetter(t, new RejectedExecutionException("retry queue is full or shutdown"));
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                pendingRetries.decrementAndGet();
+                deadLetter(t, ex);
+            }
+        }
+
+        private RetryDispatcher retryDispatcher() {
+            RetryDispatcher dispatcher = retryDispatcher;
+            if (dispatcher == null) {
+                synchronized (this) {
+                    dispatcher = retryDispatcher;
+                    if (dispatcher == null) {
+                        dispatcher = new RetryDispatcher();
+                        retryDispatcher = dispatcher;
+                    }
+                }
+            }
+            return dispatcher;
+        }
+
+        void shutdownRetries() {
+            RetryDispatcher dispatcher = retryDispatcher;
+            if (dispatcher != null) {
+                dispatcher.shutdown();
+            }
+        }
+
+        boolean awaitRetries(long timeout, TimeUnit unit) throws InterruptedException {
+            RetryDispatcher dispatcher = retryDispatcher;
+            if (dispatcher == null) {
+                return true;
+            }
+            boolean terminated = dispatcher.awaitTermination(timeout, unit);
+            if (!terminated) {
+                dispatcher.shutdownNow();
+            }
+            ShutdownCoordinator.unregister(dispatcher);
+            return terminated;
+        }
+
+        private void deadLetter(T t, Throwable throwable) {
+            if (deadLetterHandler == null) {
+                ErrorReporter.getDefault().report(logger, throwable, "dataHandler:{},data dropped,no deadLetterHandler",
+                    dataHandler.getClass());
+                return;
+            }
+            try {
+                deadLetterHandler.handle(t, throwable);
+            } catch (Exception ex) {
+                ErrorReporter.getDefault().report(logger, ex, "deadLetterHandler:{},exception caught",
+                    deadLetterHandler.getClass());
+            }
+        }
+
+        /**
+         * 当前handler的重试分发线程，第一次重试时创建并注册到ShutdownCoordinator；
+         * shutdown后继续提交等待中和就绪的重试，全部提交后退出，之后到期的重试转入死信；
+         * shutdownNow时就绪队列中未提交的重试转入死信
+         */
+        private final class RetryDispatcher implements Shutdownable {
+            /**
+             * 就绪的重试不超过maxPendingRetries，多出的一个位置留给shutdown时唤醒分发线程的wakeUp
+             */
+            private final LinkedBlockingQueue<Retry<T>> readyRetries = new LinkedBlockingQueue<>(
+                retryPolicy.maxPendingRetries + 1);
+            private final Retry<T> wakeUp = new Retry<>(null, 0);
+            private final Thread thread;
+            private boolean shutdown;
+            private boolean terminated;
+
+            RetryDispatcher() {
+                thread = new Thread(this::dispatchLoop);
+                thread.setName("dataPipeline_retry_dispatcher_" + dataHandler.getClass().getName() + "_"
+                    + RETRY_DISPATCHER_SEQUENCE.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+                ShutdownCoordinator.register(this);
+            }
+
+            /**
+             * 由定时器线程调用，不阻塞
+             *
+             * @return 已退出或就绪队列已满时返回false
+             */
+            synchronized boolean offer(Retry<T> retry) {
+                return !terminated && readyRetries.offer(retry);
+            }
+
+            private void dispatchLoop() {
+                try {
+                    while (true) {
+                        Retry<T> retry = next();
+                        if (retry == null) {
+                            return;
+                        }
+                        pendingRetries.decrementAndGet();
+                        try {
+                            executorService.execute(() -> handle(retry.data, retry.attempt));
+                        } catch (RuntimeException ex) {
+                            logger.error("dataHandler:{},retry rejected,errorMsg:{}", dataHandler.getClass(),
+                                ex.getMessage(), ex);
+                            deadLetter(retry.data, ex);
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    List<Retry<T>> leftovers = new ArrayList<>();
+                    synchronized (this) {
+                        terminated = true;
+                        readyRetries.drainTo(leftovers);
+                    }
+                    leftovers.remove(wakeUp);
+                    for (Retry<T> retry : leftovers) {
+                        pendingRetries.decrementAndGet();
+                        deadLetter(retry.data, new RejectedExecutionException(getName() + " is shutdown"));
+                    }
+                }
+            }
+
+            /**
+             * @return 下一个就绪的重试，shutdown后没有等待中的重试时返回null
+             * @throws InterruptedException
+             */
+            private Retry<T> next() throws InterruptedException {
+                while (true) {
+                    Retry<T> retry = isShutdown() ? readyRetries.poll(SHUTDOWN_POLL_MILLIS, TimeUnit.MILLISECONDS)
+                        : readyRetries.take();
+                    if (retry != null && retry != wakeUp) {
+                        return retry;
+                    }
+                    synchronized (this) {
+                        if (shutdown && pendingRetries.get() == 0) {
+                            terminated = true;
+                            return null;
+                        }
+                    }
+                }
+            }
+
+            private synchronized boolean isShutdown() {
+                return shutdown;
+            }
+
+            @Override
+            public String getName() {
+                return thread.getName();
+            }
+
+            @Override
+            public synchronized void shutdown() {
+                if (!shutdown) {
+                    shutdown = true;
+                    readyRetries.offer(wakeUp);
+                }
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                unit.timedJoin(thread, timeout);
+                return !thread.isAlive();
+            }
+
+            /**
+             * @return 等待中和就绪的重试数，就绪队列中的重试转入死信，等待中的到期后转入死信
+             */
+            @Override
+            public int shutdownNow() {
+                shutdown();
+                int pending = pendingRetries.get();
+                thread.interrupt();
+                return pending;
             }
         }
     }
 
+    private static final class Retry<T> {
+        final T data;
+        final int attempt;
+
+        Retry(T data, int attempt) {
+            this.data = data;
+            this.attempt = attempt;
+        }
+    }
+
+    private static final AtomicInteger RETRY_DISPATCHER_SEQUENCE = new AtomicInteger();
+
+    /**
+     * shutdown后分发线程轮询就绪队列的间隔，用于发现等待中的重试已全部提交
+     */
+    private static final long SHUTDOWN_POLL_MILLIS = 100;
+
+    private static class RetryTimerHolder {
+        static final ScheduledExecutorService RETRY_TIMER = new ScheduledThreadPoolExecutor(1, (r) -> {
+            Thread thread = new Thread(r, "dataPipeline_retry_timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.github.acticfox.common.tools.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.helpers.MessageFormatter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 类的实现描述：按异常指纹限流的错误日志，下游故障时避免同一异常的堆栈重复打满日志
+ *
+ * <pre>
+ * 指纹：异常类型 + 前FINGERPRINT_FRAMES帧 + 根因异常类型及其第一帧
+ * 每个指纹在每个时间窗口（windowMillis）内：
+ *   前maxFullTracesPerWindow次把异常交给slf4j输出完整堆栈，appender和JSON layout可拿到异常对象
+ *   之后到maxLogsPerWindow次只输出一行，不含堆栈
+ *   其余不输出只计数，下一个窗口第一次上报时输出上个窗口被抑制的次数
+ * 使用方式：
+ *   ErrorReporter.getDefault().report(logger, ex, "requestMerger consumer error");
+ * </pre>
+ */
+public final class ErrorReporter {
+
+    private static final int FINGERPRINT_FRAMES = 3;
+
+    private static final int MAX_FINGERPRINTS = 1000;
+
+    private static final ErrorReporter DEFAULT = new ErrorReporter();
+
+    private volatile long windowMillis = 60 * 1000;
+
+    private volatile int maxFullTracesPerWindow = 1;
+
+    private volatile int maxLogsPerWindow = 10;
+
+    private final Cache<Long, ErrorStats> stats = CacheBuilder.newBuilder()
+        .maximumSize(MAX_FINGERPRINTS)
+        .expireAfterAccess(30, TimeUnit.MINUTES)
+        .build();
+
+    private final LongAdder reportedCount = new LongAdder();
+
+    private final LongAdder suppressedCount = new LongAdder();
+
+    /**
+     * @return 默认的共享实例
+     */
+    public static ErrorReporter getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 上报异常，按指纹决定输出完整堆栈、只输出一行或抑制
+     *
+     * @param logger 输出日志的logger
+     * @param throwable 异常
+     * @param format 日志内容，slf4j格式
+     * @param args 日志参数
+     */
+    public void report(Logger logger, Throwable throwable, String format, Object... args) {
+        reportedCount.increment();
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
+        long fingerprint = fingerprint(throwable);
+        ErrorStats errorStats = stats.getIfPresent(fingerprint);
+        if (errorStats == null) {
+            ErrorStats newStats = new ErrorStats();
+            errorStats = stats.asMap().putIfAbsent(fingerprint, newStats);
+            if (errorStats == null) {
+                errorStats = newStats;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long windowStart = errorStats.windowStart.get();
+        if (now - windowStart >= windowMillis && errorStats.windowStart.compareAndSet(windowStart, now)) {
+            int suppressed = errorStats.suppressedInWindow.getAndSet(0);
+            errorStats.countInWindow.set(0);
+            if (suppressed > 0) {
+                logger.error("fingerprint:{},{} similar errors suppressed in last {}ms,total:{}",
+                    Long.toHexString(fingerprint), suppressed, windowMillis, errorStats.total.sum());
+            }
+        }
+        errorStats.total.increment();
+
+        int count = errorStats.countInWindow.incrementAndGet();
+        if (count <= maxFullTracesPerWindow) {
+            logger.error("{},errorMsg:{},fingerprint:{}", message(format, args), throwable.getMessage(),
+                Long.toHexString(fingerprint), throwable);
+        } else if (count <= maxLogsPerWindow) {
+            logger.error("{},errorMsg:{},fingerprint:{},stack trace omitted", message(format, args),
+                throwable.getMessage(), Long.toHexString(fingerprint));
+        } else {
+            errorStats.suppressedInWindow.incrementAndGet();
+            suppressedCount.increment();
+        }
+    }
+
+    private static String message(String format, Object[] args) {
+        return args == null || args.length == 0 ? format : MessageFormatter.arrayFormat(format, args).getMessage();
+    }
+
+    /**
+     * 异常类型 + 前几帧 + 根因异常类型及其第一帧的64位哈希
+     *
+     * @param throwable 异常
+     * @return 指纹
+     */
+    public static long fingerprint(Throwable throwable) {
+        long hash = mix(1125899906842597L, throwable.getClass().getName().hashCode());
+        StackTraceElement[] trace = throwable.getStackTrace();
+        for (int i = 0; i < trace.length && i < FINGERPRINT_FRAMES; i++) {
+            hash = mix(hash, trace[i]);
+        }
+        Throwable rootCause = ExceptionUtil.getRootCause(throwable);
+        if (rootCause != throwable) {
+            hash = mix(hash, rootCause.getClass().getName().hashCode());
+            StackTraceElement[] rootTrace = rootCause.getStackTrace();
+            if (rootTrace.length > 0) {
+                hash = mix(hash, rootTrace[0]);
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, StackTraceElement element) {
+        hash = mix(hash, element.getClassName().hashCode());
+        hash = mix(hash, element.getMethodName().hashCode());
+        return mix(hash, element.getLineNumber());
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * 0x100000001B3L;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be greater than zero");
+        }
+        this.windowMillis = windowMillis;
+    }
+
+    public int getMaxFullTracesPerWindow() {
+        return maxFullTracesPerWindow;
+    }
+
+    public void setMaxFullTracesPerWindow(int maxFullTracesPerWindow) {
+        this.maxFullTracesPerWindow = maxFullTracesPerWindow;
+    }
+
+    public int getMaxLogsPerWindow() {
+        return maxLogsPerWindow;
+    }
+
+    public void setMaxLogsPerWindow(int maxLogsPerWindow) {
+        this.maxLogsPerWindow = maxLogsPerWindow;
+    }
+
+    /**
+     * @return 上报的异常总数
+     */
+    public long getReportedCount() {
+        return reportedCount.sum();
+    }
+
+    /**
+     * @return 被抑制未输出的异常总数
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+
+    private static final class ErrorStats {
+
+        final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+
+        final AtomicInteger countInWindow = new AtomicInteger();
+
+        final AtomicInteger suppressedInWindow = new AtomicInteger();
+
+        final LongAdder total = new LongAdder();
+    }
+}
@@ -6,10 +6,14 @@
 
 package com.github.acticfox.common.tools.util;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -51,52 +55,261 @@ public final class ExceptionUtil {
      */
     private static final String GET_ROOT_CAUSE = "getRootCause";
 
+    /**
+     * ServletException的getRootCause方法，其他异常类为null，按异常类缓存，避免每次反射查找
+     */
+    private static final ClassValue<Method> ROOT_CAUSE_METHODS = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                if (SERVLET_EXCEPTION_NAME.equals(c.getName())) {
+                    try {
+                        return c.getMethod(GET_ROOT_CAUSE);
+                    } catch (NoSuchMethodException e) {
+                        // 未找到对应的方法
+                        log.error(e.getMessage());
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+    };
+
+    /**
+     * 不限制帧数、不过滤的默认格式
+     */
+    private static final StackTraceFormat DEFAULT_FORMAT = new StackTraceFormat();
+
     /**
      * 获取指定异常的堆栈追踪信息。
      *
      * <p>
-     * 如果能够获取该异常的产生原因，递归获取异常的堆栈信息。
-     * 针对ServletException时，需使用getRootCause()方法。
+     * 与printStackTrace的格式相同，原因异常以"Caused by: "输出，与上层异常相同的帧合并为"... n more"。
+     * 针对ServletException时，需使用getRootCause()方法获取原因异常。
      * </p>
      *
      * @param throwable 异常
      * @return 异常堆栈追踪信息
      */
     public static String getStackTrace(Throwable throwable) {
-        StringBuilder sb = new StringBuilder();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (throwable == null) {
+            return "";
+        }
+        return appendStackTrace(throwable, new StringBuilder(1024), DEFAULT_FORMAT).toString();
+    }
+
+    /**
+     * 将异常堆栈追踪信息写入StringBuilder。
+     *
+     * @param throwable 异常
+     * @param sb 写入的StringBuilder
+     * @param format 帧数限制、包过滤等输出格式
+     * @return sb
+     */
+    public static StringBuilder appendStackTrace(Throwable throwable, StringBuilder sb, StackTraceFormat format) {
+        try {
+            appendStackTrace(throwable, (Appendable) sb, format);
+        } catch (IOException e) {
+            // StringBuilder不会抛出IOException
+            throw new IllegalStateException(e);
+        }
+        return sb;
+    }
+
+    /**
+     * 将异常堆栈追踪信息一次性写入Appendable，不生成中间字符串。
+     *
+     * <p>
+     * 每个异常的帧数超过format.maxFrames时截断，format.excludedPackages中的包的连续帧合并为一行，
+     * 异常链中出现循环引用时输出[CIRCULAR REFERENCE: ...]并停止。
+     * </p>
+     *
+     * @param throwable 异常
+     * @param out 写入的Appendable
+     * @param format 帧数限制、包过滤等输出格式
+     * @return out
+     * @throws IOException out写入失败
+     */
+    public static <A extends Appendable> A appendStackTrace(Throwable throwable, A out, StackTraceFormat format)
+        throws IOException {
+        Set<Throwable> dejaVu = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        appendChain(throwable, out, new StackTraceElement[0], "", "", format, dejaVu);
+        return out;
+    }
+
+    /**
+     * 输出异常及其原因异常链，原因异常逐个迭代输出，被抑制的异常递归输出。
+     */
+    private static void appendChain(Throwable throwable, Appendable out, StackTraceElement[] enclosingTrace,
+                                    String caption, String prefix, StackTraceFormat format, Set<Throwable> dejaVu)
+        throws IOException {
         while (throwable != null) {
-            baos.reset();
-            throwable.printStackTrace(new PrintStream(baos));
-            sb.append(baos.toString());
-
-            // 获取throwable的Class对象
-            Class<?> throwableClass = throwable.getClass();
-
-            // 异常为ServletException时使用getRootCause方法
-            if (SERVLET_EXCEPTION_NAME.equals(throwableClass.getName())) {
-                try {
-                    // throwable = ((ServletException) throwable).getRootCause()
-                    // 执行Class的指定方法
-                    Method method = throwableClass.getMethod(GET_ROOT_CAUSE);
-                    throwable = (Throwable) method.invoke(throwable);
-                } catch (NoSuchMethodException e) {
-                    // 未找到对应的方法
-                    log.error(e.getMessage());
-                    throwable = null;
-                } catch (IllegalAccessException e) {
-                    // 无法访问方法
-                    log.error(e.getMessage());
-                    throwable = null;
-                } catch (InvocationTargetException e) {
-                    // 方法执行时发生异常
-                    log.error(e.getMessage());
-                    throwable = null;
+            if (!dejaVu.add(throwable)) {
+                out.append(prefix).append(caption).append("[CIRCULAR REFERENCE: ").append(throwable.toString())
+                    .append("]\n");
+                return;
+            }
+            StackTraceElement[] trace = throwable.getStackTrace();
+            out.append(prefix).append(caption).append(throwable.toString()).append('\n');
+            appendFrames(trace, enclosingTrace, out, prefix, format);
+
+            for (Throwable suppressed : throwable.getSuppressed()) {
+                appendChain(suppressed, out, trace, "Suppressed: ", prefix + "\t", format, dejaVu);
+            }
+            throwable = getCause(throwable);
+            enclosingTrace = trace;
+            caption = "Caused by: ";
+        }
+    }
+
+    private static void appendFrames(StackTraceElement[] trace, StackTraceElement[] enclosingTrace, Appendable out,
+                                     String prefix, StackTraceFormat format) throws IOException {
+        // 与上层异常末尾相同的帧不再输出
+        int m = trace.length - 1;
+        int n = enclosingTrace.length - 1;
+        while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+            m--;
+            n--;
+        }
+        int framesInCommon = trace.length - 1 - m;
+
+        int printed = 0;
+        int filtered = 0;
+        for (int i = 0; i <= m; i++) {
+            if (printed >= format.getMaxFrames()) {
+                appendFiltered(out, prefix, filtered);
+                filtered = 0;
+                out.append(prefix).append("\t... ").append(String.valueOf(m + 1 - i)).append(" frames truncated\n");
+                break;
+            }
+            StackTraceElement element = trace[i];
+            if (format.isExcluded(element.getClassName())) {
+                filtered++;
+                continue;
+            }
+            appendFiltered(out, prefix, filtered);
+            filtered = 0;
+            out.append(prefix).append("\tat ");
+            appendFrame(element, out);
+            out.append('\n');
+            printed++;
+        }
+        appendFiltered(out, prefix, filtered);
+        if (framesInCommon != 0) {
+            out.append(prefix).append("\t... ").append(String.valueOf(framesInCommon)).append(" more\n");
+        }
+    }
+
+    private static void appendFiltered(Appendable out, String prefix, int filtered) throws IOException {
+        if (filtered > 0) {
+            out.append(prefix).append("\t... ").append(String.valueOf(filtered)).append(" frames filtered\n");
+        }
+    }
+
+    private static void appendFrame(StackTraceElement element, Appendable out) throws IOException {
+        out.append(element.getClassName()).append('.').append(element.getMethodName()).append('(');
+        if (element.isNativeMethod()) {
+            out.append("Native Method");
+        } else if (element.getFileName() == null) {
+            out.append("Unknown Source");
+        } else {
+            out.append(element.getFileName());
+            if (element.getLineNumber() >= 0) {
+                out.append(':').append(String.valueOf(element.getLineNumber()));
+            }
+        }
+        out.append(')');
+    }
+
+    /**
+     * 获取异常的原因异常，ServletException使用getRootCause()，未取到时使用getCause()。
+     *
+     * @param throwable 异常
+     * @return 原因异常，没有时返回null
+     */
+    public static Throwable getCause(Throwable throwable) {
+        Method method = ROOT_CAUSE_METHODS.get(throwable.getClass());
+        if (method != null) {
+            try {
+                Throwable rootCause = (Throwable) method.invoke(throwable);
+                if (rootCause != null) {
+                    return rootCause;
+                }
+            } catch (IllegalAccessException e) {
+                // 无法访问方法
+                log.error(e.getMessage());
+            } catch (InvocationTargetException e) {
+                // 方法执行时发生异常
+                log.error(e.getMessage());
+            }
+        }
+        return throwable.getCause();
+    }
+
+    /**
+     * 获取异常链最末端的原因异常，异常链有循环引用时返回循环前的最后一个异常。
+     *
+     * @param throwable 异常
+     * @return 最末端的原因异常，没有原因异常时返回throwable自身
+     */
+    public static Throwable getRootCause(Throwable throwable) {
+        Set<Throwable> dejaVu = null;
+        Throwable cause;
+        while ((cause = getCause(throwable)) != null && cause != throwable) {
+            if (dejaVu == null) {
+                dejaVu = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+                dejaVu.add(throwable);
+            }
+            if (!dejaVu.add(cause)) {
+                break;
+            }
+            throwable = cause;
+        }
+        return throwable;
+    }
+
+    /**
+     * 类的实现描述：堆栈追踪信息的输出格式
+     */
+    public static final class StackTraceFormat {
+
+        /**
+         * 每个异常最多输出的帧数，被过滤的帧不计入
+         */
+        private int      maxFrames        = Integer.MAX_VALUE;
+
+        /**
+         * 不输出的帧所在的包前缀，如"sun.reflect."、"org.springframework.aop."
+         */
+        private String[] excludedPackages = new String[0];
+
+        public int getMaxFrames() {
+            return maxFrames;
+        }
+
+        public void setMaxFrames(int maxFrames) {
+            if (maxFrames < 0) {
+                throw new IllegalArgumentException("maxFrames must not be negative");
+            }
+            this.maxFrames = maxFrames;
+        }
+
+        public List<String> getExcludedPackages() {
+            return Collections.unmodifiableList(Arrays.asList(excludedPackages));
+        }
+
+        public void setExcludedPackages(List<String> excludedPackages) {
+            this.excludedPackages = excludedPackages.toArray(new String[excludedPackages.size()]);
+        }
+
+        boolean isExcluded(String className) {
+            for (String excludedPackage : excludedPackages) {
+                if (className.startsWith(excludedPackage)) {
+                    return true;
                 }
-            } else {
-                throwable = throwable.getCause();  
             }
+            return false;
         }
-        return sb.toString();
     }
 }
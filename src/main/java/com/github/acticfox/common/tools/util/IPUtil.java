@@ -14,13 +14,23 @@ import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.servlet.http.HttpServletRequest;
 
 import com.google.common.base.Preconditions;
-import com.google.common.net.InetAddresses;
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * 类IPUtil.java的实现描述：
@@ -33,96 +43,415 @@ import org.apache.commons.lang.StringUtils;
  */
 public class IPUtil {
 
+    private static final Logger logger = LoggerFactory.getLogger(IPUtil.class);
+
     /**
      * 获取客户端真实IP
      * 
      * @param request
      * @return
+     * @deprecated 取X-Forwarded-For最左侧的地址，该地址可由客户端任意伪造，不可用于鉴权、限流等场景；
+     *             请使用按可信代理从右向左解析的{@link ClientIpExtractor#getClientIP(HttpServletRequest)}
      */
+    @Deprecated
     public static String getClientIP(HttpServletRequest request) {
         String ip = request.getHeader("NS-Client-IP");
-        if (StringUtils.isBlank(ip) || !InetAddresses.isInetAddress(ip)) {
+        if (StringUtils.isBlank(ip) || !isIPAddress(ip)) {
             ip = request.getHeader("X-Real-IP");
         }
-        if (StringUtils.isBlank(ip) || !InetAddresses.isInetAddress(ip)) {
-            ip = request.getHeader("x-forwarded-for");
-            String[] ips = StringUtils.split(ip, ",");
-            if (ips != null) {
-                for (String sip : ips) {
-                    if (InetAddresses.isInetAddress(ip)) {
-                        ip = sip;
-                        break;
-                    }
-                }
-            }
+        if (StringUtils.isBlank(ip) || !isIPAddress(ip)) {
+            ip = firstIPAddress(request.getHeader("x-forwarded-for"));
         }
-        if (StringUtils.isBlank(ip) || !InetAddresses.isInetAddress(ip)) {
+        if (StringUtils.isBlank(ip) || !isIPAddress(ip)) {
             ip = request.getHeader("Proxy-Client-IP");
         }
-        if (StringUtils.isBlank(ip) || !InetAddresses.isInetAddress(ip)) {
+        if (StringUtils.isBlank(ip) || !isIPAddress(ip)) {
             ip = request.getHeader("WL-Proxy-Client-IP");
         }
-        if (StringUtils.isBlank(ip) || !InetAddresses.isInetAddress(ip)) {
+        if (StringUtils.isBlank(ip) || !isIPAddress(ip)) {
             ip = request.getRemoteAddr();
         }
 
         return ip;
     }
 
-    public static Collection<InetAddress> getAllHostAddress() {
-        try {
-            Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
-            Collection<InetAddress> addresses = new ArrayList<InetAddress>();
-
-            while (networkInterfaces.hasMoreElements()) {
-                NetworkInterface networkInterface = networkInterfaces.nextElement();
-                Enumeration<InetAddress> inetAddresses = networkInterface.getInetAddresses();
-                while (inetAddresses.hasMoreElements()) {
-                    InetAddress inetAddress = inetAddresses.nextElement();
-                    addresses.add(inetAddress);
-                }
+    /**
+     * 在逗号分隔的IP列表中取第一个合法的IP，不拆分数组
+     * 
+     * @param ips 如x-forwarded-for的值
+     * @return 第一个合法的IP，没有时返回null
+     */
+    private static String firstIPAddress(String ips) {
+        if (ips == null) {
+            return null;
+        }
+        int length = ips.length();
+        int start = 0;
+        while (start < length) {
+            int end = ips.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int tokenStart = start;
+            int tokenEnd = end;
+            while (tokenStart < tokenEnd && ips.charAt(tokenStart) <= ' ') {
+                tokenStart++;
+            }
+            while (tokenEnd > tokenStart && ips.charAt(tokenEnd - 1) <= ' ') {
+                tokenEnd--;
             }
+            if (isIPAddress(ips, tokenStart, tokenEnd)) {
+                return ips.substring(tokenStart, tokenEnd);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
 
-            return addresses;
-        } catch (SocketException e) {
-            throw new RuntimeException(e.getMessage(), e);
+    /**
+     * 是否为合法的IPv4或IPv6地址，不创建InetAddress
+     * 
+     * @param ip
+     * @return
+     */
+    public static boolean isIPAddress(String ip) {
+        return ip != null && isIPAddress(ip, 0, ip.length());
+    }
+
+    static boolean isIPAddress(CharSequence s, int start, int end) {
+        return parseIPv4(s, start, end) >= 0 || parseIPv6(s, start, end, null);
+    }
+
+    /**
+     * 解析点分十进制的IPv4地址，每段不允许前导0
+     * 
+     * @param s 字符串
+     * @param start 开始位置（包含）
+     * @param end 结束位置（不包含）
+     * @return 地址的无符号32位整数值，不合法时返回-1
+     */
+    public static long parseIPv4(CharSequence s, int start, int end) {
+        if (end - start < 7 || end - start > 15) {
+            return -1;
         }
+        long address = 0;
+        int parts = 0;
+        int i = start;
+        while (i < end) {
+            int partStart = i;
+            int value = 0;
+            while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                value = value * 10 + (s.charAt(i) - '0');
+                i++;
+            }
+            int digits = i - partStart;
+            if (digits == 0 || digits > 3 || value > 255 || (digits > 1 && s.charAt(partStart) == '0')) {
+                return -1;
+            }
+            address = (address << 8) | value;
+            parts++;
+            if (i < end) {
+                if (s.charAt(i) != '.' || parts == 4) {
+                    return -1;
+                }
+                i++;
+                if (i == end) {
+                    return -1;
+                }
+            }
+        }
+        return parts == 4 ? address : -1;
     }
 
-    public static Collection<String> getAllIpv4NoLoopbackAddresses() {
-        Collection<String> noLoopbackAddresses = new ArrayList<String>();
-        Collection<InetAddress> allInetAddresses = getAllHostAddress();
-        for (InetAddress address : allInetAddresses) {
-            if (!address.isLoopbackAddress() && address instanceof Inet4Address) {
-                noLoopbackAddresses.add(address.getHostAddress());
+    /**
+     * 解析IPv6地址，支持"::"缩写和末尾的IPv4形式（如::ffff:10.0.0.1），不支持zone id
+     * 
+     * @param s 字符串
+     * @param start 开始位置（包含）
+     * @param end 结束位置（不包含）
+     * @param dest 长度为2的数组，保存地址的高64位和低64位；为null时只校验
+     * @return 是否合法
+     */
+    public static boolean parseIPv6(CharSequence s, int start, int end, long[] dest) {
+        if (end - start < 2 || end - start > 45) {
+            return false;
+        }
+        // "::"之前的分组和之后的分组分别按128位整数累加
+        long headHigh = 0, headLow = 0, tailHigh = 0, tailLow = 0;
+        int headGroups = 0, tailGroups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            while (i < end && i - groupStart < 5) {
+                int digit = Character.digit(s.charAt(i), 16);
+                if (digit < 0) {
+                    break;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+            int groups;
+            if (i < end && s.charAt(i) == '.') {
+                // 末尾的IPv4部分，占两个分组
+                long ipv4 = parseIPv4(s, groupStart, end);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                i = end;
+                groups = 2;
+                value = (int) ipv4;
+            } else {
+                if (i == groupStart || i - groupStart > 4) {
+                    return false;
+                }
+                groups = 1;
             }
+            if (compressed) {
+                tailHigh = (tailHigh << (16 * groups)) | (tailLow >>> (64 - 16 * groups));
+                tailLow = (tailLow << (16 * groups)) | (value & 0xFFFFFFFFL);
+                tailGroups += groups;
+            } else {
+                headHigh = (headHigh << (16 * groups)) | (headLow >>> (64 - 16 * groups));
+                headLow = (headLow << (16 * groups)) | (value & 0xFFFFFFFFL);
+                headGroups += groups;
+            }
+            if (headGroups + tailGroups > 8) {
+                return false;
+            }
+            if (i < end) {
+                if (s.charAt(i) != ':' || ++i == end) {
+                    return false;
+                }
+                if (s.charAt(i) == ':') {
+                    if (compressed) {
+                        return false;
+                    }
+                    compressed = true;
+                    i++;
+                }
+            }
+        }
+        if (compressed ? headGroups + tailGroups > 7 : headGroups != 8) {
+            return false;
         }
+        if (dest != null) {
+            // head左移到高位后与tail合并
+            int shift = 16 * (8 - headGroups);
+            long high;
+            long low;
+            if (shift == 0) {
+                high = headHigh;
+                low = headLow;
+            } else if (shift < 64) {
+                high = (headHigh << shift) | (headLow >>> (64 - shift));
+                low = headLow << shift;
+            } else {
+                high = shift == 128 ? 0 : headLow << (shift - 64);
+                low = 0;
+            }
+            dest[0] = high | tailHigh;
+            dest[1] = low | tailLow;
+        }
+        return true;
+    }
 
-        return noLoopbackAddresses;
+    /**
+     * 本机所有网卡地址，从缓存的本机网络信息中获取
+     * 
+     * @return
+     */
+    public static Collection<InetAddress> getAllHostAddress() {
+        return new ArrayList<InetAddress>(LocalIdentityHolder.get().addresses);
+    }
+
+    public static Collection<String> getAllIpv4NoLoopbackAddresses() {
+        return new ArrayList<String>(LocalIdentityHolder.get().ipv4NoLoopbackAddresses);
     }
 
     public static String getFirstNoLoopbackAddress() {
-        Collection<String> allNoLoopbackAddresses = getAllIpv4NoLoopbackAddresses();
+        List<String> allNoLoopbackAddresses = LocalIdentityHolder.get().ipv4NoLoopbackAddresses;
         Preconditions.checkState(!allNoLoopbackAddresses.isEmpty(), " Sorry, seems you don't have a network card!");
 
-        return allNoLoopbackAddresses.iterator().next();
+        return allNoLoopbackAddresses.get(0);
     }
 
     public static String getLocalHostName() {
-        try {
-            InetAddress netAddress = InetAddress.getLocalHost();
-            return netAddress.getHostName();
-        } catch (UnknownHostException e) {
-            return "";
-        }
+        return LocalIdentityHolder.get().hostName;
     }
 
     public static String getLocalIp() {
-        try {
-            InetAddress netAddress = InetAddress.getLocalHost();
-            return netAddress.getHostAddress();
-        } catch (UnknownHostException e) {
-            return "";
+        return LocalIdentityHolder.get().localIp;
+    }
+
+    /**
+     * 立即重新读取本机网络信息，网卡或主机名变更后可调用，否则后台定时刷新
+     */
+    public static void refreshLocalIdentity() {
+        LocalIdentityHolder.refresh();
+    }
+
+    /**
+     * 本机网络信息，创建后不再修改
+     */
+    private static final class LocalIdentity {
+
+        static final LocalIdentity EMPTY = new LocalIdentity(Collections.<InetAddress> emptyList(), "", "");
+
+        final List<InetAddress> addresses;
+
+        final List<String>      ipv4NoLoopbackAddresses;
+
+        final String            hostName;
+
+        final String            localIp;
+
+        LocalIdentity(List<InetAddress> addresses, String hostName, String localIp) {
+            List<String> ipv4NoLoopbackAddresses = new ArrayList<String>();
+            for (InetAddress address : addresses) {
+                if (!address.isLoopbackAddress() && address instanceof Inet4Address) {
+                    ipv4NoLoopbackAddresses.add(address.getHostAddress());
+                }
+            }
+            this.addresses = Collections.unmodifiableList(addresses);
+            this.ipv4NoLoopbackAddresses = Collections.unmodifiableList(ipv4NoLoopbackAddresses);
+            this.hostName = hostName;
+            this.localIp = localIp;
+        }
+
+        /**
+         * 枚举网卡并通过InetAddress.getLocalHost()获取主机名，后者可能触发耗时的DNS查询
+         */
+        static LocalIdentity resolve() {
+            List<InetAddress> addresses = networkInterfaceAddresses();
+            String hostName = "";
+            String localIp = "";
+            try {
+                InetAddress netAddress = InetAddress.getLocalHost();
+                hostName = netAddress.getHostName();
+                localIp = netAddress.getHostAddress();
+            } catch (UnknownHostException e) {
+                logger.warn("resolve local host error,errorMsg:{}", e.getMessage());
+            }
+            return new LocalIdentity(addresses, hostName, localIp);
+        }
+
+        /**
+         * 只枚举网卡，不做DNS查询，用于解析超时时先行返回
+         */
+        static LocalIdentity resolveInterfaces() {
+            return new LocalIdentity(networkInterfaceAddresses(), "", "");
+        }
+
+        private static List<InetAddress> networkInterfaceAddresses() {
+            try {
+                Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+                List<InetAddress> addresses = new ArrayList<InetAddress>();
+
+                while (networkInterfaces != null && networkInterfaces.hasMoreElements()) {
+                    NetworkInterface networkInterface = networkInterfaces.nextElement();
+                    Enumeration<InetAddress> inetAddresses = networkInterface.getInetAddresses();
+                    while (inetAddresses.hasMoreElements()) {
+                        InetAddress inetAddress = inetAddresses.nextElement();
+                        addresses.add(inetAddress);
+                    }
+                }
+
+                return addresses;
+            } catch (SocketException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 类的实现描述：首次使用时解析本机网络信息，最多等待RESOLVE_TIMEOUT_MILLIS，超时则先使用只含网卡地址的结果，
+     * 解析完成后替换；之后在后台线程中定时刷新，读取时直接返回内存中的结果
+     */
+    private static final class LocalIdentityHolder {
+
+        private static final long                        RESOLVE_TIMEOUT_MILLIS  = 3000;
+
+        private static final long                        REFRESH_INTERVAL_MILLIS = 5 * 60 * 1000;
+
+        private static final ScheduledThreadPoolExecutor REFRESHER               = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ipUtil_localIdentity_refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+        private static volatile LocalIdentity            identity                = initialIdentity();
+
+        static {
+            REFRESHER.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    refresh();
+                }
+            }, REFRESH_INTERVAL_MILLIS, REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        static LocalIdentity get() {
+            return identity;
+        }
+
+        static void refresh() {
+            try {
+                identity = LocalIdentity.resolve();
+            } catch (Throwable ex) {
+                logger.error("refresh local identity error,errorMsg:{}", ex.getMessage(), ex);
+            }
+        }
+
+        /**
+         * 解析任务中不能访问LocalIdentityHolder，否则与类初始化互相等待
+         */
+        private static LocalIdentity initialIdentity() {
+            final Future<LocalIdentity> future = REFRESHER.submit(new Callable<LocalIdentity>() {
+                @Override
+                public LocalIdentity call() {
+                    return LocalIdentity.resolve();
+                }
+            });
+            try {
+                return future.get(RESOLVE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("resolve local identity timeout after {}ms, using network interfaces only",
+                    RESOLVE_TIMEOUT_MILLIS);
+                // 单线程执行，排在解析任务之后，执行时解析已完成
+                REFRESHER.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            identity = future.get();
+                        } catch (Exception ex) {
+                            logger.error("resolve local identity error,errorMsg:{}", ex.getMessage(), ex);
+                        }
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                logger.error("resolve local identity error,errorMsg:{}", e.getMessage(), e.getCause());
+            }
+            try {
+                return LocalIdentity.resolveInterfaces();
+            } catch (RuntimeException ex) {
+                logger.error("resolve network interfaces error,errorMsg:{}", ex.getMessage(), ex);
+                return LocalIdentity.EMPTY;
+            }
         }
     }
 
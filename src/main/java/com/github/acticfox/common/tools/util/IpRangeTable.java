@@ -0,0 +1,450 @@
+package com.github.acticfox.common.tools.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 类的实现描述：IP段查找表，按起始地址排序的基本类型数组上二分查找，查询时不创建对象
+ *
+ * <pre>
+ * 每个IP段对应一个int值（如网段类型、地区编号），IP段之间不允许重叠
+ * IPv4地址按无符号比较，保存时翻转符号位后按有符号比较；IPv6地址的高64位、低64位同样处理
+ * IPv4映射的IPv6地址（::ffff:0:0/96）查询时按IPv4地址查找，该范围内的IPv6段不会被匹配
+ * 可写入文件后通过内存映射加载，数据不复制到堆中；Holder持有当前生效的表，可整体原子替换
+ *
+ * 文件格式：
+ *   header : magic(int) | version(int) | ipv4Count(int) | ipv6Count(int)
+ *   ipv4   : start(int)[ipv4Count] | end(int)[ipv4Count] | value(int)[ipv4Count]
+ *   ipv6   : 按8字节对齐，startHigh(long)[n] | startLow(long)[n] | endHigh(long)[n] | endLow(long)[n] | value(int)[n]
+ * </pre>
+ */
+public final class IpRangeTable {
+
+    /**
+     * 未找到包含该地址的IP段
+     */
+    public static final int NOT_FOUND = -1;
+
+    private static final int MAGIC = 0x49505254;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final ThreadLocal<long[]> IPV6_BUFFER = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    private final int ipv4Count;
+
+    private final IntBuffer ipv4Starts;
+
+    private final IntBuffer ipv4Ends;
+
+    private final IntBuffer ipv4Values;
+
+    private final int ipv6Count;
+
+    private final LongBuffer ipv6StartHighs;
+
+    private final LongBuffer ipv6StartLows;
+
+    private final LongBuffer ipv6EndHighs;
+
+    private final LongBuffer ipv6EndLows;
+
+    private final IntBuffer ipv6Values;
+
+    /**
+     * 数据所在的buffer，内存映射加载时为MappedByteBuffer
+     */
+    private final ByteBuffer data;
+
+    private IpRangeTable(ByteBuffer data) {
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("not an ip range table");
+        }
+        this.data = data;
+        this.ipv4Count = data.getInt(8);
+        this.ipv6Count = data.getInt(12);
+        if (ipv4Count < 0 || ipv6Count < 0 || data.capacity() < sizeOf(ipv4Count, ipv6Count)) {
+            throw new IllegalArgumentException("corrupted ip range table");
+        }
+
+        int position = HEADER_SIZE;
+        ipv4Starts = intView(data, position, ipv4Count);
+        ipv4Ends = intView(data, position += 4 * ipv4Count, ipv4Count);
+        ipv4Values = intView(data, position += 4 * ipv4Count, ipv4Count);
+        position = ipv6Offset(ipv4Count);
+        ipv6StartHighs = longView(data, position, ipv6Count);
+        ipv6StartLows = longView(data, position += 8 * ipv6Count, ipv6Count);
+        ipv6EndHighs = longView(data, position += 8 * ipv6Count, ipv6Count);
+        ipv6EndLows = longView(data, position += 8 * ipv6Count, ipv6Count);
+        ipv6Values = intView(data, position + 8 * ipv6Count, ipv6Count);
+        validate();
+    }
+
+    /**
+     * 检查IP段有序且不重叠，避免加载损坏的文件后查询结果错误
+     */
+    private void validate() {
+        for (int i = 0; i < ipv4Count; i++) {
+            if (ipv4Starts.get(i) > ipv4Ends.get(i) || (i > 0 && ipv4Starts.get(i) <= ipv4Ends.get(i - 1))) {
+                throw new IllegalArgumentException("ip range table is not sorted or has overlapping ipv4 ranges");
+            }
+        }
+        for (int i = 0; i < ipv6Count; i++) {
+            if (compare(ipv6StartHighs.get(i), ipv6StartLows.get(i), ipv6EndHighs.get(i), ipv6EndLows.get(i)) > 0
+                || (i > 0 && compare(ipv6StartHighs.get(i), ipv6StartLows.get(i), ipv6EndHighs.get(i - 1),
+                    ipv6EndLows.get(i - 1)) <= 0)) {
+                throw new IllegalArgumentException("ip range table is not sorted or has overlapping ipv6 ranges");
+            }
+        }
+    }
+
+    /**
+     * 通过内存映射加载writeTo写入的文件
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static IpRangeTable load(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // 映射在channel关闭后仍然有效
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            return new IpRangeTable(buffer);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * 写入文件，先在同一目录下写唯一的临时文件再原子替换，加载中的旧文件不受影响，多个进程同时写入时互不影响
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeTo(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("can not create directory " + parent);
+        }
+        File temp = File.createTempFile(file.getName() + ".", ".tmp", parent);
+        boolean moved = false;
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(temp, "rw");
+            try {
+                ByteBuffer source = data.duplicate();
+                source.clear();
+                FileChannel channel = randomAccessFile.getChannel();
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+                channel.force(true);
+            } finally {
+                randomAccessFile.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * @param ip IPv4或IPv6地址
+     * @return 包含该地址的IP段的值，未找到或地址不合法时返回NOT_FOUND
+     */
+    public int lookup(String ip) {
+        long ipv4 = IPUtil.parseIPv4(ip, 0, ip.length());
+        if (ipv4 >= 0) {
+            return lookupIPv4((int) ipv4);
+        }
+        long[] ipv6 = IPV6_BUFFER.get();
+        if (IPUtil.parseIPv6(ip, 0, ip.length(), ipv6)) {
+            return lookupIPv6(ipv6[0], ipv6[1]);
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @param address IPv4地址的32位整数值
+     * @return 包含该地址的IP段的值，未找到时返回NOT_FOUND
+     */
+    public int lookupIPv4(int address) {
+        int key = address ^ Integer.MIN_VALUE;
+        // 最后一个start <= key的IP段
+        int low = 0;
+        int high = ipv4Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ipv4Starts.get(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && key <= ipv4Ends.get(high) ? ipv4Values.get(high) : NOT_FOUND;
+    }
+
+    /**
+     * IPv4映射的IPv6地址（::ffff:a.b.c.d）按其IPv4地址查找
+     *
+     * @param addressHigh IPv6地址的高64位
+     * @param addressLow IPv6地址的低64位
+     * @return 包含该地址的IP段的值，未找到时返回NOT_FOUND
+     */
+    public int lookupIPv6(long addressHigh, long addressLow) {
+        if (addressHigh == 0 && (addressLow >>> 32) == 0xFFFFL) {
+            return lookupIPv4((int) addressLow);
+        }
+        long keyHigh = addressHigh ^ Long.MIN_VALUE;
+        long keyLow = addressLow ^ Long.MIN_VALUE;
+        int low = 0;
+        int high = ipv6Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(ipv6StartHighs.get(mid), ipv6StartLows.get(mid), keyHigh, keyLow) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && compare(keyHigh, keyLow, ipv6EndHighs.get(high), ipv6EndLows.get(high)) <= 0
+            ? ipv6Values.get(high) : NOT_FOUND;
+    }
+
+    public int size() {
+        return ipv4Count + ipv6Count;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static int compare(long high1, long low1, long high2, long low2) {
+        return high1 != high2 ? Long.compare(high1, high2) : Long.compare(low1, low2);
+    }
+
+    private static int ipv6Offset(int ipv4Count) {
+        int offset = HEADER_SIZE + 12 * ipv4Count;
+        return (offset + 7) & ~7;
+    }
+
+    private static int sizeOf(int ipv4Count, int ipv6Count) {
+        return ipv6Offset(ipv4Count) + 36 * ipv6Count;
+    }
+
+    private static IntBuffer intView(ByteBuffer data, int position, int count) {
+        ByteBuffer view = data.duplicate();
+        view.position(position);
+        view.limit(position + 4 * count);
+        return view.slice().asIntBuffer();
+    }
+
+    private static LongBuffer longView(ByteBuffer data, int position, int count) {
+        ByteBuffer view = data.duplicate();
+        view.position(position);
+        view.limit(position + 8 * count);
+        return view.slice().asLongBuffer();
+    }
+
+    /**
+     * 类的实现描述：构建IP段查找表，build时排序并检查重叠
+     */
+    public static final class Builder {
+
+        private final List<long[]> ipv4Ranges = new ArrayList<long[]>();
+
+        private final List<long[]> ipv6Ranges = new ArrayList<long[]>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param cidr 如10.0.0.0/8、2001:db8::/32，也可为单个IP
+         * @param value IP段的值，不能为NOT_FOUND
+         * @return
+         * @throws IllegalArgumentException 格式不合法
+         */
+        public Builder addCidr(String cidr, int value) {
+            String s = cidr.trim();
+            int slash = s.indexOf('/');
+            int addressEnd = slash < 0 ? s.length() : slash;
+            long ipv4 = IPUtil.parseIPv4(s, 0, addressEnd);
+            long[] ipv6 = new long[2];
+            if (ipv4 < 0 && !IPUtil.parseIPv6(s, 0, addressEnd, ipv6)) {
+                throw new IllegalArgumentException("illegal cidr: " + cidr);
+            }
+            int maxLength = ipv4 >= 0 ? 32 : 128;
+            int prefixLength = maxLength;
+            if (slash >= 0) {
+                try {
+                    prefixLength = Integer.parseInt(s.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("illegal cidr: " + cidr, e);
+                }
+                if (prefixLength < 0 || prefixLength > maxLength) {
+                    throw new IllegalArgumentException("illegal cidr: " + cidr);
+                }
+            }
+
+            if (ipv4 >= 0) {
+                long hostMask = prefixLength == 0 ? 0xFFFFFFFFL : (1L << (32 - prefixLength)) - 1;
+                return addIPv4((int) (ipv4 & ~hostMask), (int) (ipv4 | hostMask), value);
+            }
+            long highMask = prefixLength >= 64 ? 0 : (prefixLength == 0 ? -1L : -1L >>> prefixLength);
+            long lowMask = prefixLength <= 64 ? -1L : (prefixLength == 128 ? 0 : -1L >>> (prefixLength - 64));
+            return addIPv6(ipv6[0] & ~highMask, ipv6[1] & ~lowMask, ipv6[0] | highMask, ipv6[1] | lowMask, value);
+        }
+
+        /**
+         * @param from 起始地址（包含）
+         * @param to 结束地址（包含），与from同为IPv4或IPv6
+         * @param value IP段的值，不能为NOT_FOUND
+         * @return
+         * @throws IllegalArgumentException 格式不合法
+         */
+        public Builder addRange(String from, String to, int value) {
+            long fromIPv4 = IPUtil.parseIPv4(from, 0, from.length());
+            long toIPv4 = IPUtil.parseIPv4(to, 0, to.length());
+            if (fromIPv4 >= 0 && toIPv4 >= 0) {
+                return addIPv4((int) fromIPv4, (int) toIPv4, value);
+            }
+            long[] fromIPv6 = new long[2];
+            long[] toIPv6 = new long[2];
+            if (!IPUtil.parseIPv6(from, 0, from.length(), fromIPv6) || !IPUtil.parseIPv6(to, 0, to.length(), toIPv6)) {
+                throw new IllegalArgumentException("illegal ip range: " + from + " - " + to);
+            }
+            return addIPv6(fromIPv6[0], fromIPv6[1], toIPv6[0], toIPv6[1], value);
+        }
+
+        public Builder addIPv4(int from, int to, int value) {
+            checkValue(value);
+            int start = from ^ Integer.MIN_VALUE;
+            int end = to ^ Integer.MIN_VALUE;
+            if (start > end) {
+                throw new IllegalArgumentException("ip range start is greater than end");
+            }
+            ipv4Ranges.add(new long[] {start, end, value});
+            return this;
+        }
+
+        public Builder addIPv6(long fromHigh, long fromLow, long toHigh, long toLow, int value) {
+            checkValue(value);
+            long[] range = {fromHigh ^ Long.MIN_VALUE, fromLow ^ Long.MIN_VALUE, toHigh ^ Long.MIN_VALUE,
+                            toLow ^ Long.MIN_VALUE, value};
+            if (compare(range[0], range[1], range[2], range[3]) > 0) {
+                throw new IllegalArgumentException("ip range start is greater than end");
+            }
+            ipv6Ranges.add(range);
+            return this;
+        }
+
+        private static void checkValue(int value) {
+            if (value == NOT_FOUND) {
+                throw new IllegalArgumentException("value can not be " + NOT_FOUND);
+            }
+        }
+
+        /**
+         * @return 查找表
+         * @throws IllegalArgumentException IP段有重叠
+         */
+        public IpRangeTable build() {
+            Collections.sort(ipv4Ranges, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] a, long[] b) {
+                    return Long.compare(a[0], b[0]);
+                }
+            });
+            Collections.sort(ipv6Ranges, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] a, long[] b) {
+                    return IpRangeTable.compare(a[0], a[1], b[0], b[1]);
+                }
+            });
+
+            int ipv4Count = ipv4Ranges.size();
+            int ipv6Count = ipv6Ranges.size();
+            ByteBuffer data = ByteBuffer.allocate(sizeOf(ipv4Count, ipv6Count));
+            data.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, ipv4Count).putInt(12, ipv6Count);
+            for (int i = 0; i < ipv4Count; i++) {
+                long[] range = ipv4Ranges.get(i);
+                data.putInt(HEADER_SIZE + 4 * i, (int) range[0]);
+                data.putInt(HEADER_SIZE + 4 * (ipv4Count + i), (int) range[1]);
+                data.putInt(HEADER_SIZE + 4 * (2 * ipv4Count + i), (int) range[2]);
+            }
+            int offset = ipv6Offset(ipv4Count);
+            for (int i = 0; i < ipv6Count; i++) {
+                long[] range = ipv6Ranges.get(i);
+                for (int j = 0; j < 4; j++) {
+                    data.putLong(offset + 8 * (j * ipv6Count + i), range[j]);
+                }
+                data.putInt(offset + 32 * ipv6Count + 4 * i, (int) range[4]);
+            }
+            return new IpRangeTable(data);
+        }
+    }
+
+    /**
+     * 类的实现描述：持有当前生效的查找表，重新加载后整体原子替换，查询无需加锁
+     */
+    public static final class Holder {
+
+        private final AtomicReference<IpRangeTable> table;
+
+        public Holder(IpRangeTable table) {
+            this.table = new AtomicReference<IpRangeTable>(table);
+        }
+
+        public IpRangeTable get() {
+            return table.get();
+        }
+
+        /**
+         * @param newTable 新的查找表
+         * @return 被替换的查找表
+         */
+        public IpRangeTable swap(IpRangeTable newTable) {
+            return table.getAndSet(newTable);
+        }
+
+        /**
+         * 从文件重新加载，加载失败时保留当前的查找表
+         *
+         * @param file
+         * @throws IOException
+         */
+        public void reload(File file) throws IOException {
+            table.set(load(file));
+        }
+
+        public int lookup(String ip) {
+            return table.get().lookup(ip);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.github.acticfox.common.tools.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 类的实现描述：读取属性文件及其通过add.property.file.N追加的属性文件，并记录每个文件的读取耗时
+ *
+ * <pre>
+ * 1. 从根文件开始按层发现追加文件，同一层的文件相互独立，并行读取解析
+ * 2. 全部读入后按原有的深度优先顺序合并：先合并文件自身的内容，再依次合并其追加的文件，后合并的值覆盖先合并的值
+ * 读取线程中不访问PropertyUtil，PropertyUtil类初始化期间也可安全使用
+ * </pre>
+ */
+final class PropertyFileLoader {
+
+    private static Log log = LogFactory.getLog(PropertyFileLoader.class);
+
+    /**
+     * 附加文件的前缀
+     */
+    static final String ADD_PROPERTY_PREFIX = "add.property.file.";
+
+    /**
+     * 属性文件扩展名
+     */
+    static final String PROPERTY_EXTENSION = ".properties";
+
+    private static final int MAX_PARALLELISM = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * 调用方线程的类加载器，读取线程的上下文类加载器可能与之不同，需显式传入
+     */
+    private final ClassLoader classLoader;
+
+    /**
+     * 类加载器中找不到时，通过该类以绝对路径查找
+     */
+    private final Class<?> fallbackClass;
+
+    /**
+     * 已读取的文件，包括读取失败的文件，每个文件只读取一次
+     */
+    private final Map<String, ParsedFile> parsedFiles = new HashMap<String, ParsedFile>();
+
+    /**
+     * 按合并顺序记录的读取耗时（纳秒）
+     */
+    private final Map<String, Long> loadTimes = new LinkedHashMap<String, Long>();
+
+    private final Set<String> failedFiles = new HashSet<String>();
+
+    private final long startNanos = System.nanoTime();
+
+    private ExecutorService executor;
+
+    PropertyFileLoader(ClassLoader classLoader, Class<?> fallbackClass) {
+        this.classLoader = classLoader;
+        this.fallbackClass = fallbackClass;
+    }
+
+    /**
+     * 读取指定的属性文件及其追加的属性文件，已读入的文件不再读取。
+     *
+     * @param name 属性文件名，扩展名可省略
+     * @param props 属性键值的保存对象
+     * @param files 已读入的属性文件及其位置
+     */
+    void load(String name, Map<String, String> props, Map<String, URL> files) {
+        name = toPropertyFileName(name);
+        if (files.containsKey(name)) {
+            return;
+        }
+        try {
+            discover(name, files.keySet());
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+        merge(name, props, files);
+    }
+
+    /**
+     * 按层发现追加文件，每层的文件并行读取。
+     */
+    private void discover(String root, Set<String> loaded) {
+        Collection<String> level = Collections.singletonList(root);
+        while (!level.isEmpty()) {
+            Set<String> next = new LinkedHashSet<String>();
+            for (ParsedFile file : parseAll(level)) {
+                parsedFiles.put(file.name, file);
+            }
+            for (String name : level) {
+                for (String include : parsedFiles.get(name).includes) {
+                    if (!parsedFiles.containsKey(include) && !loaded.contains(include)) {
+                        next.add(include);
+                    }
+                }
+            }
+            level = next;
+        }
+    }
+
+    private List<ParsedFile> parseAll(Collection<String> names) {
+        List<ParsedFile> result = new ArrayList<ParsedFile>(names.size());
+        if (names.size() == 1) {
+            result.add(parse(names.iterator().next()));
+            return result;
+        }
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(MAX_PARALLELISM, new LoaderThreadFactory());
+        }
+        List<Future<ParsedFile>> futures = new ArrayList<Future<ParsedFile>>(names.size());
+        for (final String name : names) {
+            futures.add(executor.submit(new Callable<ParsedFile>() {
+                @Override
+                public ParsedFile call() {
+                    return parse(name);
+                }
+            }));
+        }
+        for (Future<ParsedFile> future : futures) {
+            try {
+                result.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause.getMessage(), cause);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取并解析单个属性文件，收集其追加文件，读取失败时properties为null。
+     */
+    private ParsedFile parse(String name) {
+        long start = System.nanoTime();
+        URL url = getResource(name);
+        Properties p = null;
+        IOException error = null;
+        if (url == null) {
+            error = new FileNotFoundException(name);
+        } else {
+            InputStreamReader reader = null;
+            try {
+                reader = new InputStreamReader(url.openStream());
+                p = new Properties();
+                p.load(reader);
+            } catch (IOException e) {
+                p = null;
+                error = e;
+            } finally {
+                try {
+                    if (reader != null) {
+                        reader.close();
+                    }
+                } catch (IOException e) {
+                    log.error("", e);
+                }
+            }
+        }
+
+        List<String> includes = new ArrayList<String>();
+        if (p != null) {
+            for (int i = 1;; i++) {
+                String addfile = p.getProperty(ADD_PROPERTY_PREFIX + i);
+                if (addfile == null) {
+                    break;
+                }
+                includes.add(toPropertyFileName(getPropertiesPath(name, addfile)));
+            }
+        }
+        return new ParsedFile(name, url, p, includes, error, System.nanoTime() - start);
+    }
+
+    /**
+     * 按深度优先顺序合并，与逐个读取时的覆盖顺序一致。
+     */
+    private void merge(String name, Map<String, String> props, Map<String, URL> files) {
+        if (files.containsKey(name)) {
+            return;
+        }
+        ParsedFile file = parsedFiles.get(name);
+        if (file.properties == null) {
+            if (failedFiles.add(name)) {
+                log.error("!!! PANIC: Cannot load " + name + " !!!", file.error);
+            }
+            return;
+        }
+        for (Entry<Object, Object> e : file.properties.entrySet()) {
+            props.put((String) e.getKey(), (String) e.getValue());
+        }
+        files.put(name, file.url);
+        loadTimes.put(name, file.elapsedNanos);
+        for (String include : file.includes) {
+            merge(include, props, files);
+        }
+    }
+
+    /**
+     * 获取当前容器的类加载器，并读取WEB-INF/classes下的属性文件。 或使用主线程的类加载器，通过JNLP方式获取资源内容。
+     *
+     * @param name 属性文件名
+     * @return 属性文件位置，不存在时返回null
+     */
+    URL getResource(String name) {
+        URL url = classLoader == null ? null : classLoader.getResource(name);
+        if (url == null) {
+            url = fallbackClass.getResource("/" + name);
+        }
+        return url;
+    }
+
+    /**
+     * @return 读取失败的文件
+     */
+    Set<String> getFailedFiles() {
+        return new HashSet<String>(failedFiles);
+    }
+
+    /**
+     * @return 按合并顺序排列的各文件读取耗时（纳秒）
+     */
+    Map<String, Long> getLoadTimes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(loadTimes));
+    }
+
+    /**
+     * @return 读取耗时报告，文件按耗时从大到小排列
+     */
+    String report() {
+        List<Entry<String, Long>> entries = new ArrayList<Entry<String, Long>>(loadTimes.entrySet());
+        Collections.sort(entries, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+        long parseNanos = 0;
+        for (Entry<String, Long> e : entries) {
+            parseNanos += e.getValue();
+        }
+        StringBuilder report = new StringBuilder();
+        report.append("property files loaded: ").append(entries.size()).append(" files, elapsed ");
+        appendMillis(report, System.nanoTime() - startNanos).append(", parse total ");
+        appendMillis(report, parseNanos);
+        for (Entry<String, Long> e : entries) {
+            report.append("\n  ").append(e.getKey()).append(' ');
+            appendMillis(report, e.getValue());
+        }
+        return report.toString();
+    }
+
+    private static StringBuilder appendMillis(StringBuilder buf, long nanos) {
+        return buf.append(nanos / 1000000).append('.').append(nanos / 100000 % 10).append("ms");
+    }
+
+    static String toPropertyFileName(String name) {
+        if (!name.endsWith(PROPERTY_EXTENSION)) {
+            StringBuilder nameBuf = new StringBuilder();
+            nameBuf.append(name);
+            nameBuf.append(PROPERTY_EXTENSION);
+            name = nameBuf.toString();
+        }
+        return name;
+    }
+
+    /**
+     * 获取追加属性文件的读取路径。 以属性文件存在的目录为基础，返回属性文件中附加文件的读取路径。
+     *
+     * @param resource 含有附加文件的属性文件
+     * @param addFile 追加属性文件
+     * @return 追加属性文件的读取路径
+     */
+    static String getPropertiesPath(String resource, String addFile) {
+        File file = new File(resource);
+        String dir = file.getParent();
+        if (dir != null) {
+            StringBuilder dirBuf = new StringBuilder();
+            dirBuf.setLength(0);
+            dirBuf.append(dir);
+            dirBuf.append(File.separator);
+            dir = dirBuf.toString();
+        } else {
+            dir = "";
+        }
+        StringBuilder retBuf = new StringBuilder();
+        retBuf.setLength(0);
+        retBuf.append(dir);
+        retBuf.append(addFile);
+        return retBuf.toString();
+    }
+
+    private static final class ParsedFile {
+
+        final String name;
+
+        final URL url;
+
+        final Properties properties;
+
+        final List<String> includes;
+
+        final IOException error;
+
+        final long elapsedNanos;
+
+        ParsedFile(String name, URL url, Properties properties, List<String> includes, IOException error,
+                   long elapsedNanos) {
+            this.name = name;
+            this.url = url;
+            this.properties = properties;
+            this.includes = includes;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    private static final class LoaderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "propertyFileLoader-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.acticfox.common.tools.util;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 类的实现描述：监视文件系统中的属性文件，文件新建、修改、删除后回调onChange
+ *
+ * 编辑器保存文件时通常会产生多个事件，收到事件后等待一小段时间合并后续事件，只回调一次
+ */
+final class PropertyFileWatcher {
+
+    private static Log log = LogFactory.getLog(PropertyFileWatcher.class);
+
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final WatchService watchService;
+
+    private final Runnable onChange;
+
+    /**
+     * 目录 -> 该目录下被监视的文件名
+     */
+    private volatile Map<Path, Set<String>> watchedFiles = new HashMap<Path, Set<String>>();
+
+    private final Map<Path, WatchKey> watchKeys = new HashMap<Path, WatchKey>();
+
+    private volatile boolean closed;
+
+    PropertyFileWatcher(Runnable onChange) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.onChange = onChange;
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchLoop();
+            }
+        });
+        thread.setName("propertyFileWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 更新被监视的文件集合，非文件系统中的资源（如jar包中的属性文件）被忽略
+     *
+     * @param urls 属性文件位置
+     */
+    synchronized void watch(Collection<URL> urls) {
+        Map<Path, Set<String>> files = new HashMap<Path, Set<String>>();
+        for (URL url : urls) {
+            if (url == null || !"file".equals(url.getProtocol())) {
+                continue;
+            }
+            try {
+                Path path = Paths.get(url.toURI()).toAbsolutePath();
+                Set<String> names = files.get(path.getParent());
+                if (names == null) {
+                    names = new HashSet<String>();
+                    files.put(path.getParent(), names);
+                }
+                names.add(path.getFileName().toString());
+            } catch (URISyntaxException e) {
+                log.warn("can not watch property file " + url, e);
+            }
+        }
+
+        for (Path dir : files.keySet()) {
+            if (!watchKeys.containsKey(dir)) {
+                try {
+                    watchKeys.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+                } catch (IOException e) {
+                    log.warn("can not watch property directory " + dir, e);
+                }
+            }
+        }
+        Iterator<Entry<Path, WatchKey>> iter = watchKeys.entrySet().iterator();
+        while (iter.hasNext()) {
+            Entry<Path, WatchKey> e = iter.next();
+            if (!files.containsKey(e.getKey())) {
+                e.getValue().cancel();
+                iter.remove();
+            }
+        }
+        watchedFiles = files;
+    }
+
+    private void watchLoop() {
+        while (!closed) {
+            try {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                while (key != null) {
+                    changed |= isWatchedFileChanged(key);
+                    key.reset();
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changed) {
+                    onChange.run();
+                }
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                log.error("property file watcher error", e);
+            }
+        }
+    }
+
+    private boolean isWatchedFileChanged(WatchKey key) {
+        boolean changed = false;
+        Set<String> names = watchedFiles.get((Path) key.watchable());
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            } else if (names != null && names.contains(event.context().toString())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.error("close property file watcher error", e);
+        }
+    }
+}
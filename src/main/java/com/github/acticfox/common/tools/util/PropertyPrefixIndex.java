@@ -0,0 +1,90 @@
+package com.github.acticfox.common.tools.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 类的实现描述：属性名的前缀索引，属性名按字典序保存在数组中，同一前缀的属性名连续排列，
+ * 前缀查询通过两次二分查找定位区间，复杂度O(log n + k)
+ */
+final class PropertyPrefixIndex {
+
+    private final List<String> keys;
+
+    private final List<String> values;
+
+    PropertyPrefixIndex(Map<String, String> props) {
+        SortedMap<String, String> sorted = props instanceof SortedMap && ((SortedMap<String, String>) props)
+            .comparator() == null ? (SortedMap<String, String>) props : new TreeMap<String, String>(props);
+        String[] keyArray = new String[sorted.size()];
+        String[] valueArray = new String[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, String> e : sorted.entrySet()) {
+            keyArray[i] = e.getKey();
+            valueArray[i] = e.getValue();
+            i++;
+        }
+        this.keys = Collections.unmodifiableList(Arrays.asList(keyArray));
+        this.values = Collections.unmodifiableList(Arrays.asList(valueArray));
+    }
+
+    /**
+     * 以keyPrefix开头的属性名，按字典序排列
+     *
+     * @param keyPrefix
+     * @return
+     */
+    List<String> keys(String keyPrefix) {
+        int from = lowerBound(keyPrefix);
+        return keys.subList(from, prefixEnd(keyPrefix, from));
+    }
+
+    /**
+     * 以keyPrefix开头的属性名对应的属性值，与keys(keyPrefix)顺序一致
+     *
+     * @param keyPrefix
+     * @return
+     */
+    List<String> values(String keyPrefix) {
+        int from = lowerBound(keyPrefix);
+        return values.subList(from, prefixEnd(keyPrefix, from));
+    }
+
+    /**
+     * 第一个不小于key的位置
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.get(mid).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * from之后第一个不以keyPrefix开头的位置
+     */
+    private int prefixEnd(String keyPrefix, int from) {
+        int low = from;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.get(mid).startsWith(keyPrefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
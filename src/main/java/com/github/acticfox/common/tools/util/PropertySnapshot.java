@@ -0,0 +1,152 @@
+package com.github.acticfox.common.tools.util;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 类的实现描述：PropertyUtil的不可变属性快照，创建后不再修改，可在线程间安全共享
+ */
+final class PropertySnapshot {
+
+    private static Log log = LogFactory.getLog(PropertySnapshot.class);
+
+    /**
+     * 属性键值
+     */
+    final SortedMap<String, String> props;
+
+    /**
+     * 已读入的属性文件名及其位置，按读入顺序排列
+     */
+    final Map<String, URL> files;
+
+    /**
+     * 间接引用全部解析后的属性键值
+     */
+    final Map<String, String> resolved;
+
+    /**
+     * 属性名前缀索引
+     */
+    final PropertyPrefixIndex prefixIndex;
+
+    /**
+     * 类型转换结果的缓存，随快照一起替换
+     */
+    final Map<String, Integer> intValues = new ConcurrentHashMap<String, Integer>();
+
+    final Map<String, Long> longValues = new ConcurrentHashMap<String, Long>();
+
+    final Map<String, Boolean> booleanValues = new ConcurrentHashMap<String, Boolean>();
+
+    final Map<String, Duration> durationValues = new ConcurrentHashMap<String, Duration>();
+
+    PropertySnapshot(TreeMap<String, String> props, Map<String, URL> files) {
+        this(props, files, null);
+    }
+
+    /**
+     * @param props
+     * @param files
+     * @param resolved 已解析的属性键值，为null时根据props解析
+     */
+    PropertySnapshot(TreeMap<String, String> props, Map<String, URL> files, Map<String, String> resolved) {
+        this.props = Collections.unmodifiableSortedMap(props);
+        this.files = Collections.unmodifiableMap(files);
+        this.resolved = resolved == null ? resolveAll(props) : resolved;
+        this.prefixIndex = new PropertyPrefixIndex(props);
+    }
+
+    static Map<String, String> resolveAll(Map<String, String> props) {
+        Map<String, String> resolved = new HashMap<String, String>(props.size() * 4 / 3 + 1);
+        Set<String> resolving = new HashSet<String>();
+        for (String key : props.keySet()) {
+            resolve(props, key, resolved, resolving);
+        }
+        return resolved;
+    }
+
+    /**
+     * 解析单个属性的间接引用
+     *
+     * @param props
+     * @param key
+     * @return
+     */
+    static String resolve(Map<String, String> props, String key) {
+        return resolve(props, key, new HashMap<String, String>(), new HashSet<String>());
+    }
+
+    /**
+     * 属性值以@开头时看作对另一个属性的引用，以@@开头时去掉一个@后原样返回；
+     * key=@key以及循环引用时，闭合循环的属性保留原始值
+     */
+    private static String resolve(Map<String, String> props, String key, Map<String, String> resolved,
+                                  Set<String> resolving) {
+        String result = resolved.get(key);
+        if (result != null) {
+            return result;
+        }
+        result = props.get(key);
+        if (result == null) {
+            return null;
+        }
+
+        if (result.startsWith("@@")) {
+            result = result.substring(1);
+        } else if (result.startsWith("@")) {
+            String refKey = result.substring(1);
+            if (refKey.equals(key) || resolving.contains(refKey)) {
+                if (!refKey.equals(key)) {
+                    log.warn("circular property reference: " + key + "=" + result);
+                }
+            } else {
+                resolving.add(key);
+                try {
+                    result = resolve(props, refKey, resolved, resolving);
+                } finally {
+                    resolving.remove(key);
+                }
+            }
+        }
+        if (result != null) {
+            resolved.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * 与另一个快照相比新增、修改、删除的属性名
+     *
+     * @param other
+     * @return
+     */
+    Set<String> changedKeys(PropertySnapshot other) {
+        Set<String> changedKeys = new TreeSet<String>();
+        for (Entry<String, String> e : props.entrySet()) {
+            if (!Objects.equals(e.getValue(), other.props.get(e.getKey()))) {
+                changedKeys.add(e.getKey());
+            }
+        }
+        for (String key : other.props.keySet()) {
+            if (!props.containsKey(key)) {
+                changedKeys.add(key);
+            }
+        }
+        return changedKeys;
+    }
+}
@@ -10,17 +10,23 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,6 +49,10 @@ import org.apache.commons.logging.LogFactory;
  * </ol>
  * 详情请参考方法 getPropertyNames() getPropertiesValues()
  * </p>
+ * <p>
+ * 属性保存在不可变的快照中，addPropertyFile、reload及文件变更时生成新快照整体替换，读取属性无需加锁。
+ * 调用startWatching()后监视已读入的属性文件，文件变更时自动重新加载并通知PropertyListener。
+ * </p>
  */
 public class PropertyUtil {
 
@@ -67,145 +77,342 @@ public class PropertyUtil {
     private static final String            PROPERTY_EXTENSION    = ".properties";
 
     /**
-     * 属性键值的保存对象
+     * 编译后的属性快照文件路径的系统属性名，未指定时不使用快照文件
      */
-    private static TreeMap<String, String> props                 = new TreeMap<String, String>();
+    public static final String             SNAPSHOT_FILE_PROPERTY = "property.snapshot.file";
 
     /**
-     * 已读入的属性文件名列表
+     * 当前生效的属性快照，重新加载时整体替换，读取时无需加锁
      */
-    private static Set<String>             files                 = new HashSet<String>();
+    private static volatile PropertySnapshot snapshot;
+
+    /**
+     * 通过addPropertyFile追加的属性文件，重新加载时需要再次读入
+     */
+    private static final Set<String>       addedFiles            = new LinkedHashSet<String>();
+
+    /**
+     * 属性变更监听器
+     */
+    private static final CopyOnWriteArrayList<PropertyListener> listeners =
+        new CopyOnWriteArrayList<PropertyListener>();
+
+    /**
+     * loadProperties读入的属性文件缓存，reload时清空
+     */
+    private static final ConcurrentMap<String, LoadedProperties> loadedPropertiesCache =
+        new ConcurrentHashMap<String, LoadedProperties>();
+
+    /**
+     * 属性文件变更监视器，调用startWatching后创建
+     */
+    private static PropertyFileWatcher     watcher;
+
+    /**
+     * 最近一次读取全部属性文件时各文件的读取耗时（纳秒），按合并顺序排列
+     */
+    private static volatile Map<String, Long> loadTimes     = Collections.emptyMap();
 
     /**
      * 类加载时，进行文件属性读取的初始化。
      */
     static {
+        StartupTimeline.Span span = StartupTimeline.begin(StartupTimeline.CONFIG, "PropertyUtil.init");
+        snapshot = loadInitialSnapshot();
+        span.end();
+        for (Entry<String, Long> e : loadTimes.entrySet()) {
+            StartupTimeline.record(StartupTimeline.CONFIG, e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * 指定了编译后的属性快照文件且快照未过期时直接读取快照，否则读取属性文件并重新生成快照文件。
+     * 
+     * @return 属性快照
+     */
+    private static PropertySnapshot loadInitialSnapshot() {
+        String snapshotFile = System.getProperty(SNAPSHOT_FILE_PROPERTY);
+        if (snapshotFile == null || "".equals(snapshotFile.trim())) {
+            return loadSnapshot(Collections.<String> emptySet());
+        }
+
+        File file = new File(snapshotFile.trim());
+        PropertySnapshotFile.Content content = PropertySnapshotFile.read(file);
+        if (content != null && !isStale(content)) {
+            boolean overridden = overrideProperties(content.props);
+            return new PropertySnapshot(content.props, content.files, overridden ? null : content.resolved);
+        }
+
+        TreeMap<String, String> props = new TreeMap<String, String>();
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+        Set<String> missingFiles = readAll(Collections.<String> emptySet(), props, files);
+        PropertySnapshotFile.write(file, props, files, missingFiles);
+        overrideProperties(props);
+        return new PropertySnapshot(props, files);
+    }
+
+    /**
+     * 属性文件的位置或修改时间与快照中记录的不一致，或编译时未能读取的追加文件已经出现时，快照已过期。
+     * 
+     * @param content 快照文件内容
+     * @return 快照是否过期
+     */
+    static boolean isStale(PropertySnapshotFile.Content content) {
+        PropertyFileLoader loader = newLoader();
+        for (String name : content.missingFiles) {
+            if (loader.getResource(name) != null) {
+                log.info("property snapshot is stale, missing file appeared: " + name);
+                return true;
+            }
+        }
+        for (Entry<String, URL> e : content.files.entrySet()) {
+            URL url = loader.getResource(e.getKey());
+            if (url == null || !url.toExternalForm().equals(e.getValue().toExternalForm())
+                || PropertySnapshotFile.lastModifiedOf(url) != content.lastModified.get(e.getKey())) {
+                log.info("property snapshot is stale, source changed: " + e.getKey());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取当前的属性文件（不使用快照文件），将结果编译为快照文件，可在构建时调用以加快启动。
+     * 
+     * @param file 快照文件
+     */
+    public static void compileSnapshot(File file) {
+        TreeMap<String, String> props = new TreeMap<String, String>();
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+        Set<String> missingFiles = readAll(Collections.<String> emptySet(), props, files);
+        PropertySnapshotFile.write(file, props, files, missingFiles);
+    }
+
+    /**
+     * 读取默认属性文件及其追加的属性文件，生成新的属性快照。
+     * 
+     * @param extraFiles 通过addPropertyFile追加的属性文件
+     * @return 属性快照
+     */
+    private static PropertySnapshot loadSnapshot(Collection<String> extraFiles) {
+        TreeMap<String, String> props = new TreeMap<String, String>();
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+        readAll(extraFiles, props, files);
+        overrideProperties(props);
+        return new PropertySnapshot(props, files);
+    }
+
+    /**
+     * 读取默认属性文件及其追加的属性文件，不做命令行选项覆盖。
+     * 
+     * @param extraFiles 通过addPropertyFile追加的属性文件
+     * @param props 属性键值的保存对象
+     * @param files 已读入的属性文件及其位置
+     * @return 读取失败的属性文件
+     */
+    private static Set<String> readAll(Collection<String> extraFiles, Map<String, String> props,
+                                       Map<String, URL> files) {
+        PropertyFileLoader loader = newLoader();
         StringBuilder key = new StringBuilder();
-        load(DEFAULT_PROPERTY_FILE);
-        if (props != null) {
-            for (int i = 1;; i++) {
-                key.setLength(0);
-                key.append(ADD_PROPERTY_PREFIX);
-                key.append(i);
-                String path = getProperty(key.toString());
-                if (path == null) {
-                    break;
-                }
-                addPropertyFile(path);
+        loader.load(DEFAULT_PROPERTY_FILE, props, files);
+        for (int i = 1;; i++) {
+            key.setLength(0);
+            key.append(ADD_PROPERTY_PREFIX);
+            key.append(i);
+            String path = PropertySnapshot.resolve(props, key.toString());
+            if (path == null) {
+                break;
             }
+            loader.load(path, props, files);
         }
-        overrideProperties();
+        for (String name : extraFiles) {
+            loader.load(name, props, files);
+        }
+        loadTimes = loader.getLoadTimes();
+        log.info(loader.report());
+        return loader.getFailedFiles();
+    }
+
+    /**
+     * 读取线程不使用自身的上下文类加载器，以调用方线程的类加载器读取属性文件。
+     */
+    private static PropertyFileLoader newLoader() {
+        return new PropertyFileLoader(Thread.currentThread().getContextClassLoader(), PropertyUtil.class);
     }
 
     /**
-     * 读取指定的属性文件。
+     * 通过命令行选项&quot;-D&quot; 覆盖从属性文件中读取的系统属性内容。
+     * 
+     * @return 是否有属性值被覆盖
+     */
+    private static boolean overrideProperties(Map<String, String> props) {
+        boolean overridden = false;
+        for (Entry<String, String> e : props.entrySet()) {
+            String value = System.getProperty(e.getKey());
+            if (value != null && !value.equals(e.getValue())) {
+                e.setValue(value);
+                overridden = true;
+            }
+        }
+        return overridden;
+    }
+
+    /**
+     * 读取指定的追加属性文件的内容。
      * <p>
-     * 读取并追加指定属性文件的内容。
+     * 每个文件内容只读取一次，重复执行该方法无效。 属性文件扩展名".properties"可省略。
+     * 读入后生成新的属性快照替换当前快照，并通知属性变更监听器。
      * </p>
      * 
      * @param name 属性文件名
      */
-    private static void load(String name) {
-        StringBuilder key = new StringBuilder();
-        Properties p = readPropertyFile(name);
-        for (Entry<Object, Object> e : p.entrySet()) {
-            // 追加读入的所有内容
-            props.put((String) e.getKey(), (String) e.getValue());
-        }
-
-        if (p != null) {
-            for (int i = 1;; i++) {
-                key.setLength(0);
-                key.append(ADD_PROPERTY_PREFIX);
-                key.append(i);
-                String addfile = p.getProperty(key.toString());
-                if (addfile == null) {
-                    break;
-                }
-                String path = getPropertiesPath(name, addfile);
-                addPropertyFile(path);
+    public static void addPropertyFile(String name) {
+        name = PropertyFileLoader.toPropertyFileName(name);
+        Set<String> changedKeys;
+        synchronized (PropertyUtil.class) {
+            PropertySnapshot current = snapshot;
+            if (current.files.containsKey(name)) {
+                return;
             }
+            TreeMap<String, String> props = new TreeMap<String, String>(current.props);
+            Map<String, URL> files = new LinkedHashMap<String, URL>(current.files);
+            newLoader().load(name, props, files);
+            overrideProperties(props);
+            addedFiles.add(name);
+            changedKeys = publish(new PropertySnapshot(props, files));
         }
+        notifyListeners(changedKeys);
     }
 
     /**
-     * 读取指定的属性文件。
+     * 获取最近一次读取全部属性文件时各文件的读取耗时，用于分析启动时属性文件读取的开销。
      * <p>
-     * 读取并追加指定属性文件的内容。
+     * 使用编译后的属性快照文件启动时，未读取属性文件，返回空Map。
      * </p>
      * 
-     * @param name 属性文件名
-     * @return 属性列表
+     * @return 属性文件名 -> 读取耗时（纳秒），按合并顺序排列
      */
-    private static Properties readPropertyFile(String name) {
-        // 获取当前容器的类加载器，并读取WEB-INF/classes下的属性文件。
-        // 或使用主线程的类加载器，通过JNLP方式获取资源内容。
-        InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(name);
-        if (is == null) {
-            is = PropertyUtil.class.getResourceAsStream("/" + name);
+    public static Map<String, Long> getLoadTimes() {
+        return loadTimes;
+    }
+
+    /**
+     * 重新读取全部属性文件，生成新的属性快照替换当前快照，并通知属性变更监听器。
+     * <p>
+     * 当前快照中的属性文件有读取失败的（如文件被删除或正在写入），放弃本次重新读取，保留当前快照，
+     * 避免这些文件中的属性被当作删除。
+     * </p>
+     */
+    public static void reload() {
+        Set<String> changedKeys;
+        synchronized (PropertyUtil.class) {
+            TreeMap<String, String> props = new TreeMap<String, String>();
+            Map<String, URL> files = new LinkedHashMap<String, URL>();
+            Set<String> failedFiles = readAll(new ArrayList<String>(addedFiles), props, files);
+            failedFiles.retainAll(snapshot.files.keySet());
+            if (!failedFiles.isEmpty()) {
+                log.error("reload properties aborted, can not load " + failedFiles + ", keep current properties");
+                return;
+            }
+            overrideProperties(props);
+            loadedPropertiesCache.clear();
+            changedKeys = publish(new PropertySnapshot(props, files));
         }
-        InputStreamReader reader = null;
-        if (is != null) {
-            reader = new InputStreamReader(is);
+        notifyListeners(changedKeys);
+    }
+
+    /**
+     * 替换当前快照，需持有PropertyUtil.class锁。
+     * 
+     * @param fresh 新的属性快照
+     * @return 变更的属性键，释放锁后调用notifyListeners
+     */
+    private static Set<String> publish(PropertySnapshot fresh) {
+        PropertySnapshot old = snapshot;
+        snapshot = fresh;
+        if (watcher != null) {
+            watcher.watch(fresh.files.values());
         }
 
-        Properties p = new Properties();
-        try {
+        Set<String> changedKeys = old.changedKeys(fresh);
+        if (!changedKeys.isEmpty()) {
+            log.info("properties changed, keys:" + changedKeys);
+        }
+        return changedKeys;
+    }
+
+    /**
+     * 通知属性变更监听器，不持有PropertyUtil.class锁，监听器中可以读取属性或调用reload。
+     * 
+     * @param changedKeys 变更的属性键
+     */
+    private static void notifyListeners(Set<String> changedKeys) {
+        if (changedKeys.isEmpty()) {
+            return;
+        }
+        for (PropertyListener listener : listeners) {
             try {
-                p.load(reader);
-                files.add(name);
+                listener.onPropertiesChanged(changedKeys);
+            } catch (Exception e) {
+                log.error("PropertyListener " + listener.getClass().getName() + " error", e);
+            }
+        }
+    }
 
-            } catch (NullPointerException e) {
-                System.err.println("!!! PANIC: Cannot load " + name + " !!!");
-                System.err.println(ExceptionUtil.getStackTrace(e));
-            } catch (IOException e) {
-                System.err.println("!!! PANIC: Cannot load " + name + " !!!");
-                System.err.println(ExceptionUtil.getStackTrace(e));
+    /**
+     * 监视已读入的属性文件（仅限文件系统中的属性文件，jar包中的无法监视），文件变更后自动重新加载。
+     */
+    public static void startWatching() {
+        synchronized (PropertyUtil.class) {
+            if (watcher != null) {
+                return;
             }
-        } finally {
             try {
-                if (reader != null) {
-                    reader.close();
-                }
+                watcher = new PropertyFileWatcher(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            reload();
+                        } catch (Exception e) {
+                            log.error("reload properties error", e);
+                        }
+                    }
+                });
             } catch (IOException e) {
-                log.error("", e);
+                throw new IllegalStateException("can not create property file watcher", e);
             }
+            watcher.watch(snapshot.files.values());
         }
-        return p;
     }
 
     /**
-     * 通过命令行选项&quot;-D&quot; 覆盖从属性文件中读取的系统属性内容。
+     * 停止监视属性文件。
      */
-    private static void overrideProperties() {
-        Enumeration<String> enumeration = Collections.enumeration(props.keySet());
-        while (enumeration.hasMoreElements()) {
-            String name = enumeration.nextElement();
-            String value = System.getProperty(name);
-            if (value != null) {
-                props.put(name, value);
+    public static void stopWatching() {
+        synchronized (PropertyUtil.class) {
+            if (watcher != null) {
+                watcher.close();
+                watcher = null;
             }
         }
     }
 
     /**
-     * 读取指定的追加属性文件的内容。
-     * <p>
-     * 每个文件内容只读取一次，重复执行该方法无效。 属性文件扩展名".properties"可省略。
-     * </p>
+     * 添加属性变更监听器，同一监听器只添加一次。
      * 
-     * @param name 属性文件名
+     * @param listener 属性变更监听器
      */
-    public static void addPropertyFile(String name) {
-        if (!name.endsWith(PROPERTY_EXTENSION)) {
-            StringBuilder nameBuf = new StringBuilder();
-            nameBuf.append(name);
-            nameBuf.append(PROPERTY_EXTENSION);
-            name = nameBuf.toString();
-        }
-        if (!files.contains(name)) {
-            load(name);
-        }
+    public static void addListener(PropertyListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * 移除属性变更监听器。
+     * 
+     * @param listener 属性变更监听器
+     */
+    public static void removeListener(PropertyListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -214,27 +421,14 @@ public class PropertyUtil {
      * 当参数由&quot;@&quot;开头时，属性值被看作一个间接引用，并做为一个新属性名重新搜索。 为避免<code>key=@key</code>
      * 情况下的死循环，直接将<code>@key</code>结果返回。
      * 当需要设置以&quot;@&quot;开头的属性值时，请使用&quot;@@&quot;方式避免间接属性名引用。
+     * 间接引用在生成属性快照时已全部解析，循环引用时保留原始属性值。
      * </p>
      * 
      * @param key 属性名
      * @return 指定属性名的属性值
      */
     public static String getProperty(String key) {
-        String result = props.get(key);
-
-        // (key)=@(key)时，避免死循环
-        if (result != null && result.equals("@" + key)) {
-            return result;
-        }
-        // 属性值以@@开头时，将结果看作时一个@开头的字符串返回
-        if (result != null && result.startsWith("@@")) {
-            return result.substring(1);
-        }
-        if (result != null && result.startsWith("@")) {
-            result = getProperty(result.substring(1));
-        }
-
-        return result;
+        return snapshot.resolved.get(key);
     }
 
     /**
@@ -248,7 +442,7 @@ public class PropertyUtil {
      * @return 指定属性名的属性值
      */
     public static String getProperty(String key, String defaultValue) {
-        String result = props.get(key);
+        String result = snapshot.props.get(key);
         if (result == null) {
             return defaultValue;
         }
@@ -257,13 +451,67 @@ public class PropertyUtil {
 
     /**
      * 获取指定key的属性值,转换为int。
+     * <p>
+     * 转换结果缓存在当前属性快照中，属性重新加载后重新转换。
+     * </p>
      * 
      * @param key 属性名
      * @return
      */
     public static int getPropertyOfInt(String key) {
+        PropertySnapshot current = snapshot;
+        Integer value = current.intValues.get(key);
+        if (value == null) {
+            value = Integer.valueOf(current.resolved.get(key));
+            current.intValues.put(key, value);
+        }
+        return value;
+    }
 
-        return Integer.valueOf(getProperty(key));
+    /**
+     * 获取指定key的属性值,转换为int，属性值未找到时返回默认值。
+     * 
+     * @param key 属性名
+     * @param defaultValue 属性默认值
+     * @return
+     */
+    public static int getPropertyOfInt(String key, int defaultValue) {
+        PropertySnapshot current = snapshot;
+        if (!current.resolved.containsKey(key)) {
+            return defaultValue;
+        }
+        return getPropertyOfInt(key);
+    }
+
+    /**
+     * 获取指定key的属性值,转换为long。
+     * 
+     * @param key 属性名
+     * @return
+     */
+    public static long getPropertyOfLong(String key) {
+        PropertySnapshot current = snapshot;
+        Long value = current.longValues.get(key);
+        if (value == null) {
+            value = Long.valueOf(current.resolved.get(key));
+            current.longValues.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 获取指定key的属性值,转换为long，属性值未找到时返回默认值。
+     * 
+     * @param key 属性名
+     * @param defaultValue 属性默认值
+     * @return
+     */
+    public static long getPropertyOfLong(String key, long defaultValue) {
+        PropertySnapshot current = snapshot;
+        if (!current.resolved.containsKey(key)) {
+            return defaultValue;
+        }
+        return getPropertyOfLong(key);
     }
 
     /**
@@ -273,8 +521,60 @@ public class PropertyUtil {
      * @return
      */
     public static boolean getPropertyOfBoolean(String key) {
+        PropertySnapshot current = snapshot;
+        Boolean value = current.booleanValues.get(key);
+        if (value == null) {
+            value = Boolean.valueOf(current.resolved.get(key));
+            current.booleanValues.put(key, value);
+        }
+        return value;
+    }
 
-        return Boolean.valueOf(getProperty(key));
+    /**
+     * 获取指定key的属性值,转换为Duration。
+     * <p>
+     * 支持纯数字（毫秒）、带单位的数字（ms、s、m、h、d，如<code>30s</code>）及ISO-8601格式（如<code>PT30S</code>）。
+     * </p>
+     * 
+     * @param key 属性名
+     * @return
+     */
+    public static Duration getPropertyOfDuration(String key) {
+        PropertySnapshot current = snapshot;
+        Duration value = current.durationValues.get(key);
+        if (value == null) {
+            String text = current.resolved.get(key);
+            if (text == null) {
+                throw new IllegalArgumentException("property " + key + " not found");
+            }
+            value = parseDuration(text.trim());
+            current.durationValues.put(key, value);
+        }
+        return value;
+    }
+
+    private static Duration parseDuration(String text) {
+        int unitIndex = 0;
+        while (unitIndex < text.length() && Character.isDigit(text.charAt(unitIndex))) {
+            unitIndex++;
+        }
+        if (unitIndex == 0) {
+            return Duration.parse(text);
+        }
+        long amount = Long.parseLong(text.substring(0, unitIndex));
+        String unit = text.substring(unitIndex).trim();
+        if (unit.isEmpty() || "ms".equals(unit)) {
+            return Duration.ofMillis(amount);
+        } else if ("s".equals(unit)) {
+            return Duration.ofSeconds(amount);
+        } else if ("m".equals(unit)) {
+            return Duration.ofMinutes(amount);
+        } else if ("h".equals(unit)) {
+            return Duration.ofHours(amount);
+        } else if ("d".equals(unit)) {
+            return Duration.ofDays(amount);
+        }
+        throw new IllegalArgumentException("invalid duration: " + text);
     }
 
     /**
@@ -283,7 +583,7 @@ public class PropertyUtil {
      * @return 属性名列表
      */
     public static Enumeration<String> getPropertyNames() {
-        return Collections.enumeration(props.keySet());
+        return Collections.enumeration(snapshot.props.keySet());
     }
 
     /**
@@ -293,15 +593,7 @@ public class PropertyUtil {
      * @return 以指定前缀的开头的属性名列表
      */
     public static Enumeration<String> getPropertyNames(String keyPrefix) {
-        Map<String, String> map = props.tailMap(keyPrefix);
-        Iterator<String> iter = map.keySet().iterator();
-        while (iter.hasNext()) {
-            String name = iter.next();
-            if (!name.startsWith(keyPrefix)) {
-                return Collections.enumeration(props.subMap(keyPrefix, name).keySet());
-            }
-        }
-        return Collections.enumeration(map.keySet());
+        return Collections.enumeration(snapshot.prefixIndex.keys(keyPrefix));
     }
 
     /**
@@ -313,17 +605,15 @@ public class PropertyUtil {
      */
     public static Set<String> getPropertiesValues(String propertyName, String keyPrefix) {
 
-        Properties localProps = loadProperties(propertyName);
-        if (localProps == null) {
+        LoadedProperties loaded = loadCachedProperties(propertyName);
+        if (loaded == null) {
             return null;
         }
-
-        Enumeration<String> keyEnum = getPropertyNames(localProps, keyPrefix);
-        if (keyEnum == null) {
+        if (keyPrefix == null) {
             return null;
         }
 
-        return getPropertiesValues(localProps, keyEnum);
+        return new HashSet<String>(loaded.prefixIndex.values(keyPrefix));
     }
 
     /**
@@ -372,15 +662,40 @@ public class PropertyUtil {
 
     /**
      * 根据指定属性文件名，获取属性集。
+     * <p>
+     * 属性文件只在首次访问时读取，之后返回缓存内容的副本，reload后重新读取。
+     * </p>
      * 
      * @param propertyName 属性文件名
      * @return 属性集
      */
     public static Properties loadProperties(String propertyName) {
+        LoadedProperties loaded = loadCachedProperties(propertyName);
+        if (loaded == null) {
+            return null;
+        }
+        Properties retProps = new Properties();
+        retProps.putAll(loaded.properties);
+        return retProps;
+    }
+
+    private static LoadedProperties loadCachedProperties(String propertyName) {
         // propertyName为null或空字符串时，返回null
         if (propertyName == null || "".equals(propertyName)) {
             return null;
         }
+        LoadedProperties loaded = loadedPropertiesCache.get(propertyName);
+        if (loaded == null) {
+            loaded = new LoadedProperties(readProperties(propertyName));
+            LoadedProperties existing = loadedPropertiesCache.putIfAbsent(propertyName, loaded);
+            if (existing != null) {
+                loaded = existing;
+            }
+        }
+        return loaded.properties == null ? null : loaded;
+    }
+
+    private static Properties readProperties(String propertyName) {
         Properties retProps = new Properties();
 
         StringBuilder resourceName = new StringBuilder();
@@ -420,28 +735,38 @@ public class PropertyUtil {
     }
 
     /**
-     * 获取追加属性文件的读取路径。 以属性文件存在的目录为基础，返回属性文件中附加文件的读取路径。
-     * 
-     * @param resource 含有附加文件的属性文件
-     * @param addFile 追加属性文件
-     * @return 追加属性文件的读取路径
-     */
-    private static String getPropertiesPath(String resource, String addFile) {
-        File file = new File(resource);
-        String dir = file.getParent();
-        if (dir != null) {
-            StringBuilder dirBuf = new StringBuilder();
-            dirBuf.setLength(0);
-            dirBuf.append(dir);
-            dirBuf.append(File.separator);
-            dir = dirBuf.toString();
-        } else {
-            dir = "";
-        }
-        StringBuilder retBuf = new StringBuilder();
-        retBuf.setLength(0);
-        retBuf.append(dir);
-        retBuf.append(addFile);
-        return retBuf.toString();
+     * loadProperties读入的属性文件及其前缀索引，properties为null表示属性文件不存在。
+     */
+    private static final class LoadedProperties {
+
+        final Properties properties;
+
+        final PropertyPrefixIndex prefixIndex;
+
+        LoadedProperties(Properties properties) {
+            this.properties = properties;
+            if (properties == null) {
+                this.prefixIndex = null;
+            } else {
+                Map<String, String> map = new TreeMap<String, String>();
+                for (String name : properties.stringPropertyNames()) {
+                    map.put(name, properties.getProperty(name));
+                }
+                this.prefixIndex = new PropertyPrefixIndex(map);
+            }
+        }
+    }
+
+    /**
+     * 属性变更监听器，重新加载或追加属性文件后，在释放PropertyUtil.class锁后被调用。
+     */
+    public interface PropertyListener {
+
+        /**
+         * 属性发生变更（新增、修改、删除）后调用
+         * 
+         * @param changedKeys 发生变更的属性名
+         */
+        void onPropertiesChanged(Set<String> changedKeys);
     }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.LockSupport;
@@ -12,12 +13,15 @@ import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.acticfox.common.tools.thredpool.ShutdownCoordinator;
+import com.github.acticfox.common.tools.thredpool.Shutdownable;
+
 /**
- * 类的实现描述：请求合并
+ * 类的实现描述：请求合并，创建后注册到ShutdownCoordinator，应用关闭时处理完队列中的请求后退出消费线程
  *
  * @author fanyong.kfy 2019-08-13 09:22:38
  */
-public class RequestMerger<T, R> {
+public class RequestMerger<T, R> implements Shutdownable {
 
     private static Logger logger = LoggerFactory.getLogger(RequestMerger.class);
 
@@ -29,10 +33,18 @@ public class RequestMerger<T, R> {
 
     private int queueCapacity = 1;
 
-    private MergerHandler mergerHandler;
+    private MergerHandler<T, R> mergerHandler;
 
     private static final int PARKING_TIME = 10;
 
+    private final String name = "requestMerger@" + Integer.toHexString(System.identityHashCode(this));
+
+    private Thread consumer;
+
+    private volatile boolean shutdown;
+
+    private volatile boolean stopped;
+
     public RequestMerger(int mergerCount, long mergerMillisInterval,
                          int queueCapacity, MergerHandler<T, R> mergerHandler) {
         this.mergerCount = mergerCount;
@@ -44,42 +56,127 @@ public class RequestMerger<T, R> {
 
     void init() {
         queue = new LinkedBlockingQueue<>(queueCapacity);
-        Thread consumer = new Thread(() -> {
-            while (true) {
+        consumer = new Thread(() -> {
+            while (!stopped) {
                 try {
-                    Request request = queue.peek();
+                    // 先读shutdown再看队列，之后入队的请求由入队方撤回，见checkEnqueued
+                    boolean exiting = shutdown;
+                    Request<T, R> request = queue.peek();
+                    if (request == null && exiting) {
+                        return;
+                    }
                     int queueSize = queue.size();
-                    boolean isTimeSatisfied = request != null
-                        && (System.currentTimeMillis() - request.getEnqueueTime()) >= mergerMillisInterval;
+                    // shutdown后不再等待凑满合并间隔，尽快排空队列
+                    boolean isTimeSatisfied = request != null && (shutdown
+                        || (System.currentTimeMillis() - request.getEnqueueTime()) >= mergerMillisInterval);
                     boolean isCountSatisfied = queueSize >= mergerCount;
                     int minCount = Math.min(queueSize, mergerCount);
 
                     if (isTimeSatisfied || isCountSatisfied) {
-                        List<Request> mergedRequests = new ArrayList<>();
+                        List<Request<T, R>> mergedRequests = new ArrayList<>();
                         for (int i = 0; i < minCount; i++) {
-                            mergedRequests.add(queue.take());
+                            // 只有当前线程取出请求，为null时队列已被shutdownNow清空
+                            Request<T, R> merged = queue.poll();
+                            if (merged == null) {
+                                break;
+                            }
+                            mergedRequests.add(merged);
+                        }
+                        if (!mergedRequests.isEmpty()) {
+                            mergerHandler.handle(mergedRequests);
                         }
-                        mergerHandler.handle(mergedRequests);
                     } else {
                         LockSupport.parkUntil(System.currentTimeMillis() + PARKING_TIME);
                     }
                 } catch (Throwable e) {
-                    logger.error("requestMerger consumer error,errorMsg:{}", e.getMessage(), e);
+                    ErrorReporter.getDefault().report(logger, e, "requestMerger consumer error");
                 }
             }
         });
         consumer.setName("requestMergerConsumer");
         consumer.start();
+        ShutdownCoordinator.register(this);
     }
 
+    private void checkNotShutdown() {
+        if (shutdown) {
+            throw new RejectedExecutionException(name + " is shutdown");
+        }
+    }
+
+    /**
+     * 入队后再检查一次：入队前检查shutdown与入队之间，消费线程可能已看到空队列退出，此时撤回请求，
+     * 避免getResult一直等待；撤回失败说明请求已被消费线程取出
+     */
+    private void checkEnqueued(Request<T, R> request) {
+        if (shutdown && queue.remove(request)) {
+            throw new RejectedExecutionException(name + " is shutdown");
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException 已shutdown
+     */
     public void putRequest(Request<T, R> request) throws InterruptedException {
+        checkNotShutdown();
         request.setEnqueueTime(System.currentTimeMillis());
         queue.put(request);
+        checkEnqueued(request);
     }
 
+    /**
+     * @throws RejectedExecutionException 已shutdown
+     */
     public boolean offerRequest(Request<T, R> request, int timeout, TimeUnit unit) throws InterruptedException {
+        checkNotShutdown();
         request.setEnqueueTime(System.currentTimeMillis());
-        return queue.offer(request, timeout, unit);
+        if (!queue.offer(request, timeout, unit)) {
+            return false;
+        }
+        checkEnqueued(request);
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 停止接收新请求，消费线程不再等待合并间隔，处理完队列中已有的请求后退出
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(consumer);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        unit.timedJoin(consumer, timeout);
+        return !consumer.isAlive();
+    }
+
+    /**
+     * 停止消费线程，取消队列中未处理的请求，getResult抛出CancellationException
+     *
+     * @return 取消的请求数
+     */
+    @Override
+    public int shutdownNow() {
+        shutdown = true;
+        stopped = true;
+        consumer.interrupt();
+        List<Request<T, R>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Request<T, R> request : pending) {
+            request.cancel();
+        }
+        return pending.size();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
     }
 
     public int queueSize() {
@@ -126,6 +223,10 @@ public class RequestMerger<T, R> {
             futureTask.run();
         }
 
+        private void cancel() {
+            futureTask.cancel(false);
+        }
+
         public T getParam() {
             return param;
         }
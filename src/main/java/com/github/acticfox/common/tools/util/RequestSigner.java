@@ -0,0 +1,250 @@
+package com.github.acticfox.common.tools.util;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 类的实现描述：请求签名，按OAuth 1.0签名基串的方式生成规范请求并计算HMAC签名
+ *
+ * <pre>
+ * 规范请求：METHOD &amp; percentEncode(url) &amp; percentEncode(k1=v1&amp;k2=v2...)
+ *   参数的key和value先按RFC 3986编码，再按编码后的key、value排序
+ * 规范请求直接按字节写入线程内复用的ByteBuffer并交给Mac计算，不生成中间字符串
+ * Mac实例按线程缓存，以算法和密钥为key在所有签名器间共享，签名器被丢弃后不会遗留各自的线程缓存
+ * </pre>
+ */
+public final class RequestSigner {
+
+    public static final String HMAC_SHA1 = "HmacSHA1";
+
+    public static final String HMAC_SHA256 = "HmacSHA256";
+
+    private static final byte[] ENCODED_PARAM_SEPARATOR = {'%', '2', '6'};
+
+    private static final byte[] ENCODED_PAIR_SEPARATOR = {'%', '3', 'D'};
+
+    /**
+     * 线程内复用的ByteBuffer超过该容量后不再复用
+     */
+    private static final int MAX_REUSED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> REUSED_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(1024);
+        }
+    };
+
+    /**
+     * 每个线程最多缓存的Mac实例数，超过后淘汰最久未使用的
+     */
+    private static final int MAX_CACHED_MACS = 16;
+
+    /**
+     * 线程内缓存的Mac，SecretKeySpec按算法和密钥内容判断相等
+     */
+    private static final ThreadLocal<Map<SecretKeySpec, Mac>> MACS = new ThreadLocal<Map<SecretKeySpec, Mac>>() {
+        @Override
+        protected Map<SecretKeySpec, Mac> initialValue() {
+            return new LinkedHashMap<SecretKeySpec, Mac>(MAX_CACHED_MACS, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Entry<SecretKeySpec, Mac> eldest) {
+                    return size() > MAX_CACHED_MACS;
+                }
+            };
+        }
+    };
+
+    private static final Comparator<String[]> PAIR_ORDER = new Comparator<String[]>() {
+        @Override
+        public int compare(String[] a, String[] b) {
+            int c = a[0].compareTo(b[0]);
+            return c != 0 ? c : a[1].compareTo(b[1]);
+        }
+    };
+
+    private final String algorithm;
+
+    private final SecretKeySpec key;
+
+    /**
+     * @param algorithm Mac算法，如HmacSHA1、HmacSHA256
+     * @param key 签名密钥
+     * @throws IllegalArgumentException 算法不支持或密钥不可用
+     */
+    public RequestSigner(String algorithm, byte[] key) {
+        Objects.requireNonNull(algorithm, "algorithm is null");
+        Objects.requireNonNull(key, "key is null");
+        this.algorithm = algorithm;
+        this.key = new SecretKeySpec(key, algorithm);
+        // 提前校验算法和密钥
+        MACS.get().put(this.key, newMac());
+    }
+
+    /**
+     * OAuth 1.0 HMAC-SHA1签名器，密钥为 percentEncode(consumerSecret) &amp; percentEncode(tokenSecret)
+     *
+     * @param consumerSecret
+     * @param tokenSecret 可为null
+     * @return
+     */
+    public static RequestSigner oauthHmacSha1(String consumerSecret, String tokenSecret) {
+        StringBuilder key = new StringBuilder();
+        URLUtils.percentEncode(consumerSecret, key).append('&');
+        if (tokenSecret != null) {
+            URLUtils.percentEncode(tokenSecret, key);
+        }
+        return new RequestSigner(HMAC_SHA1, key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private Mac mac() {
+        Map<SecretKeySpec, Mac> cached = MACS.get();
+        Mac mac = cached.get(key);
+        if (mac == null) {
+            mac = newMac();
+            cached.put(key, mac);
+        }
+        return mac;
+    }
+
+    /**
+     * 计算请求签名
+     *
+     * @param method HTTP方法
+     * @param url 不含查询字符串的请求地址
+     * @param params 请求参数，未编码
+     * @return 签名
+     */
+    public byte[] sign(String method, String url, Map<String, String> params) {
+        ByteBuffer buffer = writeCanonicalRequest(method, url, params);
+        try {
+            Mac mac = mac();
+            buffer.flip();
+            mac.update(buffer);
+            return mac.doFinal();
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * 计算请求签名并按Base64编码
+     *
+     * @see #sign(String, String, Map)
+     */
+    public String signBase64(String method, String url, Map<String, String> params) {
+        return Base64.getEncoder().encodeToString(sign(method, url, params));
+    }
+
+    /**
+     * 生成规范请求，用于排查签名不一致的问题
+     *
+     * @see #sign(String, String, Map)
+     */
+    public static String canonicalRequest(String method, String url, Map<String, String> params) {
+        ByteBuffer buffer = writeCanonicalRequest(method, url, params);
+        try {
+            return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * 将规范请求按US-ASCII字节写入buffer
+     *
+     * @param method HTTP方法
+     * @param url 不含查询字符串的请求地址
+     * @param params 请求参数，未编码
+     * @param dest 写入的buffer
+     * @return dest
+     * @throws BufferOverflowException dest剩余空间不足
+     */
+    public static ByteBuffer canonicalRequest(String method, String url, Map<String, String> params,
+                                              ByteBuffer dest) {
+        int length = method.length();
+        for (int i = 0; i < length; i++) {
+            char c = method.charAt(i);
+            dest.put((byte) (c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c));
+        }
+        dest.put((byte) '&');
+        URLUtils.percentEncode(url, dest);
+        dest.put((byte) '&');
+
+        String[][] pairs = sortedEncodedPairs(params);
+        for (int i = 0; i < pairs.length; i++) {
+            if (i > 0) {
+                dest.put(ENCODED_PARAM_SEPARATOR);
+            }
+            // 编码后的key、value再编码一次
+            URLUtils.percentEncode(pairs[i][0], dest);
+            dest.put(ENCODED_PAIR_SEPARATOR);
+            URLUtils.percentEncode(pairs[i][1], dest);
+        }
+        return dest;
+    }
+
+    /**
+     * 按编码后的key、value排序，不需要编码的参数不生成新的字符串
+     */
+    private static String[][] sortedEncodedPairs(Map<String, String> params) {
+        String[][] pairs = new String[params.size()][];
+        int i = 0;
+        for (Entry<String, String> entry : params.entrySet()) {
+            String value = entry.getValue() == null ? "" : entry.getValue();
+            pairs[i++] = new String[] {URLUtils.percentEncode(entry.getKey()), URLUtils.percentEncode(value)};
+        }
+        Arrays.sort(pairs, PAIR_ORDER);
+        return pairs;
+    }
+
+    /**
+     * 写入线程内复用的buffer，空间不足时扩容重写
+     */
+    private static ByteBuffer writeCanonicalRequest(String method, String url, Map<String, String> params) {
+        ByteBuffer buffer = REUSED_BUFFER.get();
+        while (true) {
+            buffer.clear();
+            try {
+                return canonicalRequest(method, url, params, buffer);
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                REUSED_BUFFER.set(buffer);
+            }
+        }
+    }
+
+    private static void releaseBuffer(ByteBuffer buffer) {
+        if (buffer.capacity() > MAX_REUSED_CAPACITY) {
+            REUSED_BUFFER.remove();
+        }
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+}
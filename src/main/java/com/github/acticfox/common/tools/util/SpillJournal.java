@@ -0,0 +1,309 @@
+package com.github.acticfox.common.tools.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Objects;
+
+/**
+ * 类的实现描述：基于内存映射文件的追加写日志，按写入顺序读出，读写位置保存在文件头中，进程重启后可继续读取未消费的数据
+ *
+ * <pre>
+ * 文件格式：
+ *   header : magic(int) | reserved(int) | readOffset(long) | writeOffset(long) | count(long)
+ *   record : length(int) | bytes，length为-1时表示null，没有bytes
+ * 读空后从文件头部重新写；一直读不空时，已读部分足够大后将未读部分移动到文件头部，复用已读的空间
+ * </pre>
+ */
+public class SpillJournal<T> implements Closeable {
+
+    private static final int MAGIC = 0x53504A31;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int READ_OFFSET_POSITION = 8;
+
+    private static final int WRITE_OFFSET_POSITION = 16;
+
+    private static final int COUNT_POSITION = 24;
+
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    private static final int NULL_LENGTH = -1;
+
+    public static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+    private static final int COMPACT_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+
+    private final Serializer<T> serializer;
+
+    private final int regionSize;
+
+    private final RandomAccessFile randomAccessFile;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer header;
+
+    private MappedByteBuffer writeRegion;
+
+    private long writeRegionStart;
+
+    private MappedByteBuffer readRegion;
+
+    private long readRegionStart;
+
+    private long readOffset;
+
+    private long writeOffset;
+
+    private long count;
+
+    public SpillJournal(File file, Serializer<T> serializer) throws IOException {
+        this(file, serializer, DEFAULT_REGION_SIZE);
+    }
+
+    public SpillJournal(File file, Serializer<T> serializer, int regionSize) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        Objects.requireNonNull(serializer, "serializer is null");
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("regionSize must be greater than zero");
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("can not create directory " + parent);
+        }
+        this.file = file;
+        this.serializer = serializer;
+        this.regionSize = regionSize;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+        this.header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+        if (header.getInt(0) == MAGIC) {
+            readOffset = header.getLong(READ_OFFSET_POSITION);
+            writeOffset = header.getLong(WRITE_OFFSET_POSITION);
+            count = header.getLong(COUNT_POSITION);
+            if (readOffset < HEADER_SIZE || writeOffset < readOffset || count < 0) {
+                close();
+                throw new IOException("corrupted spill journal " + file);
+            }
+        } else {
+            header.putInt(0, MAGIC);
+            reset();
+        }
+    }
+
+    /**
+     * 追加一条数据到日志尾部，t可以为null
+     *
+     * @param t
+     * @throws IOException
+     */
+    public synchronized void append(T t) throws IOException {
+        byte[] bytes = t == null ? new byte[0] : serializer.serialize(t);
+        int recordSize = RECORD_HEADER_SIZE + bytes.length;
+        if (writeRegion == null || writeOffset + recordSize > writeRegionStart + writeRegion.capacity()) {
+            writeRegionStart = writeOffset;
+            writeRegion = channel.map(MapMode.READ_WRITE, writeRegionStart, Math.max(regionSize, recordSize));
+        }
+        writeRegion.position((int)(writeOffset - writeRegionStart));
+        writeRegion.putInt(t == null ? NULL_LENGTH : bytes.length);
+        writeRegion.put(bytes);
+
+        writeOffset += recordSize;
+        count++;
+        writeHeader();
+    }
+
+    /**
+     * 读取并移除日志头部的数据，日志为空时返回null，写入的数据本身可能为null，需要区分时先判断isEmpty
+     *
+     * @return
+     * @throws IOException
+     */
+    public synchronized T poll() throws IOException {
+        if (count == 0) {
+            return null;
+        }
+        T t = peek();
+        remove();
+        return t;
+    }
+
+    /**
+     * 读取日志头部的数据但不移除，日志为空时返回null；
+     * 头部数据无法反序列化时抛出CorruptedRecordException，数据仍保留在日志中，由调用方决定是否remove跳过
+     *
+     * @return
+     * @throws IOException
+     */
+    public synchronized T peek() throws IOException {
+        if (count == 0) {
+            return null;
+        }
+        int length = headLength();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        long dataOffset = readOffset + RECORD_HEADER_SIZE;
+        MappedByteBuffer region = mapForRead(dataOffset, length);
+        byte[] bytes = new byte[length];
+        region.position((int)(dataOffset - readRegionStart));
+        region.get(bytes);
+        try {
+            return serializer.deserialize(bytes);
+        } catch (Exception e) {
+            throw new CorruptedRecordException("spill journal " + file + " record at offset " + readOffset
+                + " can not be deserialized,length:" + length, e);
+        }
+    }
+
+    /**
+     * 移除日志头部的数据，日志为空时返回false
+     *
+     * @return
+     * @throws IOException
+     */
+    public synchronized boolean remove() throws IOException {
+        if (count == 0) {
+            return false;
+        }
+        readOffset += RECORD_HEADER_SIZE + Math.max(headLength(), 0);
+        count--;
+        if (count == 0) {
+            reset();
+        } else if (shouldCompact()) {
+            compact();
+        } else {
+            writeHeader();
+        }
+        return true;
+    }
+
+    private int headLength() throws IOException {
+        return mapForRead(readOffset, RECORD_HEADER_SIZE).getInt((int)(readOffset - readRegionStart));
+    }
+
+    /**
+     * 持续背压时日志不会读空，已读部分不小于一个映射区域且不小于未读部分时压缩，避免文件无限增长；
+     * 未读部分复制到已读部分，两者不重叠，复制过程中进程退出时文件头仍指向原位置
+     */
+    private boolean shouldCompact() {
+        long consumed = readOffset - HEADER_SIZE;
+        return consumed >= regionSize && consumed >= writeOffset - readOffset;
+    }
+
+    private void compact() throws IOException {
+        long length = writeOffset - readOffset;
+        ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(length, COMPACT_BUFFER_SIZE));
+        for (long copied = 0; copied < length;) {
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), length - copied));
+            int read = channel.read(buffer, readOffset + copied);
+            if (read < 0) {
+                throw new IOException("unexpected end of spill journal " + file);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, HEADER_SIZE + copied + buffer.position());
+            }
+            copied += read;
+        }
+        channel.force(false);
+
+        readOffset = HEADER_SIZE;
+        writeOffset = HEADER_SIZE + length;
+        writeRegion = null;
+        readRegion = null;
+        writeHeader();
+        header.force();
+    }
+
+    private MappedByteBuffer mapForRead(long position, int length) throws IOException {
+        if (readRegion == null || position < readRegionStart
+            || position + length > readRegionStart + readRegion.capacity()) {
+            readRegionStart = position;
+            readRegion = channel.map(MapMode.READ_WRITE, readRegionStart, Math.max(regionSize, length));
+        }
+        return readRegion;
+    }
+
+    /**
+     * 日志读空后从文件头部重新开始写，复用已分配的文件空间
+     */
+    private void reset() {
+        readOffset = HEADER_SIZE;
+        writeOffset = HEADER_SIZE;
+        count = 0;
+        writeRegion = null;
+        readRegion = null;
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        header.putLong(READ_OFFSET_POSITION, readOffset);
+        header.putLong(WRITE_OFFSET_POSITION, writeOffset);
+        header.putLong(COUNT_POSITION, count);
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * 将映射区域的修改强制刷到磁盘
+     */
+    public synchronized void force() {
+        header.force();
+        if (writeRegion != null) {
+            writeRegion.force();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+        randomAccessFile.close();
+    }
+
+    /**
+     * 日志头部的数据无法反序列化，日志文件本身可以继续读写
+     */
+    public static class CorruptedRecordException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public CorruptedRecordException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * 数据与字节数组之间的序列化方式
+     *
+     * @param <T>
+     */
+    public interface Serializer<T> {
+
+        byte[] serialize(T t) throws IOException;
+
+        T deserialize(byte[] bytes) throws IOException;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.acticfox.common.tools.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * 类的实现描述：启动阶段的JFR事件，只在StartupTimeline开启JFR后加载
+ *
+ * <pre>
+ * 依赖jdk.jfr模块，编译需要JDK 11+或8u262+（JFR移植到OpenJDK 8的版本），更早的JDK 8无法编译本类
+ * </pre>
+ */
+@Name("com.github.acticfox.StartupPhase")
+@Label("Startup Phase")
+@Category("Application Startup")
+final class StartupPhaseEvent extends Event {
+
+    @Label("Category")
+    String category;
+
+    @Label("Name")
+    String name;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+    static Object start() {
+        StartupPhaseEvent event = new StartupPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commit(Object started, StartupTimeline.Phase phase) {
+        StartupPhaseEvent event = (StartupPhaseEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.category = phase.getCategory();
+            event.name = phase.getName();
+            event.cpuTime = phase.getCpuNanos();
+            event.allocated = phase.getAllocatedBytes();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.github.acticfox.common.tools.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 类的实现描述：启动耗时记录，记录每个启动阶段（starter、listener、属性文件读取、预热等）的耗时，启动完成后输出按耗时排序的报告
+ *
+ * <pre>
+ * 使用方式：
+ *   StartupTimeline.Span span = StartupTimeline.begin(StartupTimeline.STARTER, name);
+ *   try {
+ *       ...
+ *   } finally {
+ *       span.end();
+ *   }
+ * 记录墙钟时间、当前线程的CPU时间和分配的字节数，CPU时间和分配字节数按线程统计，begin和end须在同一线程调用，JVM不支持时为-1
+ * 系统属性startup.timeline.jfr=true且JVM支持JFR时，每个阶段同时提交一个JFR事件（com.github.acticfox.StartupPhase）
+ *   StartupPhaseEvent继承jdk.jfr.Event，编译需要JDK 11+或8u262+；运行时没有JFR时不加载该类
+ * 启动完成后用drainReport输出报告并清空已记录的阶段，避免子context刷新时重复输出、阶段一直驻留内存
+ * </pre>
+ */
+public final class StartupTimeline {
+
+    public static final String STARTER = "starter";
+
+    public static final String LISTENER = "listener";
+
+    public static final String CONFIG = "config";
+
+    public static final String WARM_UP = "warmUp";
+
+    public static final String JFR_PROPERTY = "startup.timeline.jfr";
+
+    private static final long NOT_AVAILABLE = -1;
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME_SUPPORTED = isCpuTimeSupported();
+
+    private static final boolean ALLOCATED_BYTES_SUPPORTED = isAllocatedBytesSupported();
+
+    private static final boolean JFR_ENABLED = Boolean.getBoolean(JFR_PROPERTY) && isJfrAvailable();
+
+    private static final ConcurrentLinkedQueue<Phase> phases = new ConcurrentLinkedQueue<>();
+
+    private StartupTimeline() {
+    }
+
+    /**
+     * 开始记录一个阶段
+     *
+     * @param category 阶段类型，如STARTER、LISTENER、CONFIG
+     * @param name 阶段名称
+     * @return 调用end结束记录
+     */
+    public static Span begin(String category, String name) {
+        return new Span(category, name);
+    }
+
+    /**
+     * 记录已在别处测量的阶段，只有墙钟时间
+     *
+     * @param category 阶段类型
+     * @param name 阶段名称
+     * @param wallNanos 耗时（纳秒）
+     */
+    public static void record(String category, String name, long wallNanos) {
+        phases.add(new Phase(category, name, Thread.currentThread().getName(), wallNanos, NOT_AVAILABLE,
+            NOT_AVAILABLE));
+    }
+
+    /**
+     * @return 已记录的阶段，按记录顺序排列
+     */
+    public static List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<Phase>(phases));
+    }
+
+    public static void clear() {
+        phases.clear();
+    }
+
+    /**
+     * @return 启动耗时报告，先按类型汇总，再按墙钟时间从大到小列出各阶段
+     */
+    public static String report() {
+        return report(new ArrayList<Phase>(phases));
+    }
+
+    /**
+     * 取出已记录的阶段并生成报告，取出的阶段不再保留
+     *
+     * @return 启动耗时报告，没有记录的阶段时返回空字符串
+     */
+    public static String drainReport() {
+        List<Phase> drained = new ArrayList<Phase>();
+        Phase phase;
+        while ((phase = phases.poll()) != null) {
+            drained.add(phase);
+        }
+        return drained.isEmpty() ? "" : report(drained);
+    }
+
+    private static String report(List<Phase> sorted) {
+        Collections.sort(sorted, (a, b) -> Long.compare(b.wallNanos, a.wallNanos));
+        Map<String, long[]> totals = new LinkedHashMap<String, long[]>();
+        for (Phase phase : sorted) {
+            long[] total = totals.get(phase.category);
+            if (total == null) {
+                total = new long[2];
+                totals.put(phase.category, total);
+            }
+            total[0]++;
+            total[1] += phase.wallNanos;
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("startup timeline: ").append(sorted.size()).append(" phases");
+        for (Entry<String, long[]> e : totals.entrySet()) {
+            report.append(", ").append(e.getKey()).append(' ').append(e.getValue()[0]).append(" total ");
+            appendMillis(report, e.getValue()[1]);
+        }
+        for (Phase phase : sorted) {
+            report.append("\n  [").append(phase.category).append("] ").append(phase.name).append(" wall ");
+            appendMillis(report, phase.wallNanos);
+            if (phase.cpuNanos != NOT_AVAILABLE) {
+                report.append(", cpu ");
+                appendMillis(report, phase.cpuNanos);
+            }
+            if (phase.allocatedBytes != NOT_AVAILABLE) {
+                report.append(", alloc ").append(phase.allocatedBytes / 1024).append("KB");
+            }
+            report.append(", thread ").append(phase.thread);
+        }
+        return report.toString();
+    }
+
+    private static StringBuilder appendMillis(StringBuilder buf, long nanos) {
+        return buf.append(nanos / 1000000).append('.').append(nanos / 100000 % 10).append("ms");
+    }
+
+    private static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : NOT_AVAILABLE;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (!ALLOCATED_BYTES_SUPPORTED) {
+            return NOT_AVAILABLE;
+        }
+        return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(
+            Thread.currentThread().getId());
+    }
+
+    private static boolean isCpuTimeSupported() {
+        try {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static boolean isAllocatedBytesSupported() {
+        try {
+            return THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, StartupTimeline.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 进行中的阶段，end只能调用一次
+     */
+    public static final class Span {
+
+        private final String category;
+
+        private final String name;
+
+        private final long startNanos = System.nanoTime();
+
+        private final long startCpuNanos = currentThreadCpuTime();
+
+        private final long startAllocatedBytes = currentThreadAllocatedBytes();
+
+        /**
+         * JFR未开启时为null，类型为StartupPhaseEvent，避免不支持JFR的JVM加载该类
+         */
+        private final Object event;
+
+        private Span(String category, String name) {
+            this.category = category;
+            this.name = name;
+            this.event = JFR_ENABLED ? StartupPhaseEvent.start() : null;
+        }
+
+        /**
+         * 结束记录
+         *
+         * @return 记录的阶段
+         */
+        public Phase end() {
+            long wallNanos = System.nanoTime() - startNanos;
+            long cpuNanos = startCpuNanos == NOT_AVAILABLE ? NOT_AVAILABLE : currentThreadCpuTime() - startCpuNanos;
+            long allocatedBytes = startAllocatedBytes == NOT_AVAILABLE ? NOT_AVAILABLE
+                : currentThreadAllocatedBytes() - startAllocatedBytes;
+            Phase phase = new Phase(category, name, Thread.currentThread().getName(), wallNanos, cpuNanos,
+                allocatedBytes);
+            phases.add(phase);
+            if (event != null) {
+                StartupPhaseEvent.commit(event, phase);
+            }
+            return phase;
+        }
+    }
+
+    public static final class Phase {
+
+        private final String category;
+
+        private final String name;
+
+        private final String thread;
+
+        private final long wallNanos;
+
+        private final long cpuNanos;
+
+        private final long allocatedBytes;
+
+        Phase(String category, String name, String thread, long wallNanos, long cpuNanos, long allocatedBytes) {
+            this.category = category;
+            this.name = name;
+            this.thread = thread;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return 当前线程的CPU时间（纳秒），不支持时为-1
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * @return 当前线程分配的字节数，不支持时为-1
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
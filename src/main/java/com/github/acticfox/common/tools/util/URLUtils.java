@@ -7,18 +7,22 @@
  */
 package com.github.acticfox.common.tools.util;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URI;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Map.Entry;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * 类URLUtils.java的实现描述：TODO 类实现描述
  * 
@@ -27,22 +31,63 @@ import org.apache.commons.lang.StringUtils;
 public class URLUtils {
 
     private static final String            EMPTY_STRING           = "";
-    private static final String            UTF_8                  = "UTF-8";
-    private static final String            PAIR_SEPARATOR         = "=";
-    private static final String            PARAM_SEPARATOR        = "&";
     private static final char              QUERY_STRING_SEPARATOR = '?';
+    private static final char              PAIR_SEPARATOR_CHAR    = '=';
+    private static final char              PARAM_SEPARATOR_CHAR   = '&';
+
+    private static final String            HTTP_SCHEME            = "http://";
+    private static final String            HTTPS_SCHEME           = "https://";
+    private static final int               MAX_CACHED_HOSTS       = 10000;
+
+    private static final char[]            HEX_DIGITS             = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * RFC 3986 unreserved字符：ALPHA / DIGIT / "-" / "." / "_" / "~"，其余字符均按UTF-8编码后转义
+     */
+    private static final boolean[]         UNRESERVED             = new boolean[128];
+
+    /**
+     * application/x-www-form-urlencoded不转义的字符，与URLEncoder一致：ALPHA / DIGIT / "-" / "." / "_" / "*"，空格编码为'+'
+     */
+    private static final boolean[]         FORM_UNRESERVED        = new boolean[128];
 
-    private static final String            ERROR_MSG              = String.format("Cannot find specified encoding: %s",
-                                                                          UTF_8);
+    /**
+     * 主机名中允许的ASCII字符：unreserved / sub-delims / pct-encoded，另允许'_'
+     */
+    private static final boolean[]         HOST_CHARS             = new boolean[128];
+
+    /**
+     * 线程内复用的StringBuilder超过该容量后不再复用，避免长期占用大块内存
+     */
+    private static final int               MAX_REUSED_CAPACITY    = 8 * 1024;
 
-    private static final Set<EncodingRule> ENCODING_RULES;
+    private static final ThreadLocal<StringBuilder> REUSED_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
 
     static {
-        Set<EncodingRule> rules = new HashSet<EncodingRule>();
-        rules.add(new EncodingRule("*", "%2A"));
-        rules.add(new EncodingRule("+", "%20"));
-        rules.add(new EncodingRule("%7E", "~"));
-        ENCODING_RULES = Collections.unmodifiableSet(rules);
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        UNRESERVED['-'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['_'] = true;
+        System.arraycopy(UNRESERVED, 0, FORM_UNRESERVED, 0, UNRESERVED.length);
+        UNRESERVED['~'] = true;
+        FORM_UNRESERVED['*'] = true;
+        System.arraycopy(UNRESERVED, 0, HOST_CHARS, 0, UNRESERVED.length);
+        for (char c : "!$&'()*+,;=%".toCharArray()) {
+            HOST_CHARS[c] = true;
+        }
     }
 
     /**
@@ -56,40 +101,283 @@ public class URLUtils {
     }
 
     private static String doFormUrlEncode(Map<String, String> map) {
-        StringBuffer encodedString = new StringBuffer(map.size() * 20);
-        for (String key : map.keySet()) {
-            encodedString.append(PARAM_SEPARATOR).append(formURLEncode(key));
-            if (map.get(key) != null) {
-                encodedString.append(PAIR_SEPARATOR).append(formURLEncode(map.get(key)));
+        StringBuilder encodedString = borrowBuilder();
+        try {
+            return formURLEncodeMap(map, encodedString).toString();
+        } finally {
+            releaseBuilder(encodedString);
+        }
+    }
+
+    /**
+     * Form-urlencodes a map and appends the result to the builder, entries without value are written as the key only
+     * 
+     * @param map any map
+     * @param dest builder to append to
+     * @return dest
+     */
+    public static StringBuilder formURLEncodeMap(Map<String, String> map, StringBuilder dest) {
+        boolean first = true;
+        for (Entry<String, String> entry : map.entrySet()) {
+            if (!first) {
+                dest.append(PARAM_SEPARATOR_CHAR);
+            }
+            first = false;
+            formURLEncode(entry.getKey(), dest);
+            if (entry.getValue() != null) {
+                dest.append(PAIR_SEPARATOR_CHAR);
+                formURLEncode(entry.getValue(), dest);
             }
         }
-        return encodedString.toString().substring(1);
+        return dest;
     }
 
     /**
-     * Percent encodes a string
+     * Form-urlencodes a map and writes the US-ASCII result into the buffer, e.g. as the body of an outbound request
+     * 
+     * @param map any map
+     * @param dest buffer to write to
+     * @return dest
+     * @throws java.nio.BufferOverflowException if dest has insufficient remaining space
+     */
+    public static ByteBuffer formURLEncodeMap(Map<String, String> map, ByteBuffer dest) {
+        boolean first = true;
+        for (Entry<String, String> entry : map.entrySet()) {
+            if (!first) {
+                dest.put((byte) PARAM_SEPARATOR_CHAR);
+            }
+            first = false;
+            encode(entry.getKey(), FORM_UNRESERVED, dest);
+            if (entry.getValue() != null) {
+                dest.put((byte) PAIR_SEPARATOR_CHAR);
+                encode(entry.getValue(), FORM_UNRESERVED, dest);
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Percent encodes a string according to RFC 3986
      * 
      * @param string plain string
-     * @return percent encoded string
+     * @return percent encoded string, the same instance if nothing needs to be encoded
      */
     public static String percentEncode(String string) {
-        String encoded = formURLEncode(string);
-        for (EncodingRule rule : ENCODING_RULES) {
-            encoded = rule.apply(encoded);
-        }
-        return encoded;
+        return encode(string, UNRESERVED);
+    }
+
+    /**
+     * Percent encodes a string according to RFC 3986 and appends the result to the builder
+     * 
+     * @param string plain string
+     * @param dest builder to append to
+     * @return dest
+     */
+    public static StringBuilder percentEncode(CharSequence string, StringBuilder dest) {
+        encode(string, 0, UNRESERVED, dest);
+        return dest;
+    }
+
+    /**
+     * Percent encodes a string according to RFC 3986 and appends the result to the appendable
+     * 
+     * @param string plain string
+     * @param dest appendable to append to
+     * @return dest
+     * @throws IOException if dest throws
+     */
+    public static <A extends Appendable> A percentEncode(CharSequence string, A dest) throws IOException {
+        encode(string, 0, UNRESERVED, dest);
+        return dest;
+    }
+
+    /**
+     * Percent encodes a string according to RFC 3986 and writes the US-ASCII result into the buffer
+     * 
+     * @param string plain string
+     * @param dest buffer to write to
+     * @return dest
+     * @throws java.nio.BufferOverflowException if dest has insufficient remaining space
+     */
+    public static ByteBuffer percentEncode(CharSequence string, ByteBuffer dest) {
+        encode(string, UNRESERVED, dest);
+        return dest;
     }
 
     /**
-     * Translates a string into application/x-www-form-urlencoded format
+     * Translates a string into application/x-www-form-urlencoded format, same as URLEncoder with UTF-8
      * 
-     * @return form-urlencoded string
+     * @return form-urlencoded string, the same instance if nothing needs to be encoded
      */
     public static String formURLEncode(String string) {
+        return encode(string, FORM_UNRESERVED);
+    }
+
+    /**
+     * Translates a string into application/x-www-form-urlencoded format and appends the result to the builder
+     * 
+     * @param string plain string
+     * @param dest builder to append to
+     * @return dest
+     */
+    public static StringBuilder formURLEncode(CharSequence string, StringBuilder dest) {
+        encode(string, 0, FORM_UNRESERVED, dest);
+        return dest;
+    }
+
+    /**
+     * Translates a string into application/x-www-form-urlencoded format and writes the US-ASCII result into the
+     * buffer
+     * 
+     * @param string plain string
+     * @param dest buffer to write to
+     * @return dest
+     * @throws java.nio.BufferOverflowException if dest has insufficient remaining space
+     */
+    public static ByteBuffer formURLEncode(CharSequence string, ByteBuffer dest) {
+        encode(string, FORM_UNRESERVED, dest);
+        return dest;
+    }
+
+    private static String encode(String string, boolean[] unreserved) {
+        int start = indexOfReserved(string, unreserved);
+        if (start == string.length()) {
+            return string;
+        }
+        StringBuilder encoded = new StringBuilder(string.length() + 16);
+        encoded.append(string, 0, start);
+        encode(string, start, unreserved, encoded);
+        return encoded.toString();
+    }
+
+    private static void encode(CharSequence string, int start, boolean[] unreserved, StringBuilder dest) {
         try {
-            return URLEncoder.encode(string, UTF_8);
-        } catch (UnsupportedEncodingException uee) {
-            throw new IllegalStateException(ERROR_MSG, uee);
+            encode(string, start, unreserved, (Appendable) dest);
+        } catch (IOException e) {
+            // StringBuilder不会抛出IOException
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void encode(CharSequence string, int start, boolean[] unreserved, final Appendable dest)
+        throws IOException {
+        encode(string, start, unreserved, new ByteSink<IOException>() {
+
+            @Override
+            public void put(int b) throws IOException {
+                dest.append((char) b);
+            }
+
+            @Override
+            public void putEscaped(int b) throws IOException {
+                dest.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+            }
+        });
+    }
+
+    private static void encode(CharSequence string, boolean[] unreserved, final ByteBuffer dest) {
+        encode(string, 0, unreserved, new ByteSink<RuntimeException>() {
+
+            @Override
+            public void put(int b) {
+                dest.put((byte) b);
+            }
+
+            @Override
+            public void putEscaped(int b) {
+                dest.put((byte) '%').put((byte) HEX_DIGITS[(b >> 4) & 0xF]).put((byte) HEX_DIGITS[b & 0xF]);
+            }
+        });
+    }
+
+    /**
+     * 逐字符查表编码，非ASCII字符按UTF-8编码后转义，form编码时空格编码为'+'，各种输出目标共用此实现
+     */
+    private static <E extends Exception> void encode(CharSequence string, int start, boolean[] unreserved,
+                                                     ByteSink<E> dest) throws E {
+        int length = string.length();
+        for (int i = start; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                if (unreserved[c]) {
+                    dest.put(c);
+                } else if (c == ' ' && unreserved == FORM_UNRESERVED) {
+                    dest.put('+');
+                } else {
+                    dest.putEscaped(c);
+                }
+            } else if (c < 0x800) {
+                dest.putEscaped(0xC0 | (c >> 6));
+                dest.putEscaped(0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                int codePoint = codePointAt(string, i);
+                if (codePoint < 0) {
+                    dest.putEscaped('?');
+                } else {
+                    i++;
+                    dest.putEscaped(0xF0 | (codePoint >> 18));
+                    dest.putEscaped(0x80 | ((codePoint >> 12) & 0x3F));
+                    dest.putEscaped(0x80 | ((codePoint >> 6) & 0x3F));
+                    dest.putEscaped(0x80 | (codePoint & 0x3F));
+                }
+            } else {
+                dest.putEscaped(0xE0 | (c >> 12));
+                dest.putEscaped(0x80 | ((c >> 6) & 0x3F));
+                dest.putEscaped(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * 编码输出目标，put写入US-ASCII字节，putEscaped写入字节的%XX转义形式
+     */
+    private interface ByteSink<E extends Exception> {
+
+        void put(int b) throws E;
+
+        void putEscaped(int b) throws E;
+    }
+
+    /**
+     * @return 第一个需要转义的字符位置，不需要转义时返回字符串长度
+     */
+    private static int indexOfReserved(CharSequence string, boolean[] unreserved) {
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80 || !unreserved[c]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 读取i处开始的代理对，不成对的代理字符返回-1，与URLEncoder一致按'?'编码
+     */
+    private static int codePointAt(CharSequence string, int i) {
+        char high = string.charAt(i);
+        if (Character.isHighSurrogate(high) && i + 1 < string.length()) {
+            char low = string.charAt(i + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(high, low);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 获取线程内复用的StringBuilder，使用后需调用releaseBuilder，不可嵌套使用
+     */
+    private static StringBuilder borrowBuilder() {
+        StringBuilder builder = REUSED_BUILDER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static void releaseBuilder(StringBuilder builder) {
+        if (builder.capacity() > MAX_REUSED_CAPACITY) {
+            REUSED_BUILDER.remove();
         }
     }
 
@@ -100,11 +388,61 @@ public class URLUtils {
      * @return plain string
      */
     public static String formURLDecode(String string) {
-        try {
-            return URLDecoder.decode(string, UTF_8);
-        } catch (UnsupportedEncodingException uee) {
-            throw new IllegalStateException(ERROR_MSG, uee);
+        return formURLDecode(string, 0, string.length());
+    }
+
+    /**
+     * Decodes a region of a application/x-www-form-urlencoded string, same as URLDecoder with UTF-8. The region is
+     * copied without decoding if it contains neither '%' nor '+'.
+     * 
+     * @param string form-urlencoded string
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     * @return plain string
+     * @throws IllegalArgumentException if the region contains an illegal escape pattern
+     */
+    public static String formURLDecode(CharSequence string, int start, int end) {
+        int i = start;
+        while (i < end && string.charAt(i) != '%' && string.charAt(i) != '+') {
+            i++;
+        }
+        if (i == end) {
+            return string.subSequence(start, end).toString();
+        }
+
+        StringBuilder decoded = new StringBuilder(end - start);
+        decoded.append(string, start, i);
+        byte[] bytes = null;
+        while (i < end) {
+            char c = string.charAt(i);
+            if (c == '+') {
+                decoded.append(' ');
+                i++;
+            } else if (c == '%') {
+                if (bytes == null) {
+                    bytes = new byte[(end - i) / 3];
+                }
+                int count = 0;
+                while (i + 2 < end && string.charAt(i) == '%') {
+                    // 与URLDecoder(Integer.parseInt)一致，允许"%+X"
+                    int high = string.charAt(i + 1) == '+' ? 0 : Character.digit(string.charAt(i + 1), 16);
+                    int low = Character.digit(string.charAt(i + 2), 16);
+                    if (high < 0 || low < 0) {
+                        throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern at " + i);
+                    }
+                    bytes[count++] = (byte) ((high << 4) | low);
+                    i += 3;
+                }
+                if (i < end && string.charAt(i) == '%') {
+                    throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+                }
+                decoded.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+            } else {
+                decoded.append(c);
+                i++;
+            }
         }
+        return decoded.toString();
     }
 
     /**
@@ -115,14 +453,19 @@ public class URLUtils {
      * @return new url with parameters on query string
      */
     public static String appendParametersToQueryString(String url, Map<String, String> params) {
-        String queryString = URLUtils.formURLEncodeMap(params);
-        if (queryString.equals(EMPTY_STRING)) {
-            return url;
-        } else {
-            url += url.indexOf(QUERY_STRING_SEPARATOR) != -1 ? PARAM_SEPARATOR : QUERY_STRING_SEPARATOR;
-            url += queryString;
+        if (params.size() <= 0) {
             return url;
         }
+        StringBuilder result = borrowBuilder();
+        try {
+            result.append(url);
+            result.append(url.indexOf(QUERY_STRING_SEPARATOR) != -1 ? PARAM_SEPARATOR_CHAR : QUERY_STRING_SEPARATOR);
+            int start = result.length();
+            formURLEncodeMap(params, result);
+            return result.length() == start ? url : result.toString();
+        } finally {
+            releaseBuilder(result);
+        }
     }
 
     /**
@@ -133,60 +476,349 @@ public class URLUtils {
      */
     // TODO Move to MapUtils
     public static String concatSortedPercentEncodedParams(Map<String, String> params) {
-        StringBuilder result = new StringBuilder();
-        for (String key : params.keySet()) {
-            result.append(key).append(PAIR_SEPARATOR);
-            result.append(params.get(key)).append(PARAM_SEPARATOR);
+        StringBuilder result = new StringBuilder(params.size() * 20);
+        for (Entry<String, String> entry : params.entrySet()) {
+            if (result.length() > 0) {
+                result.append(PARAM_SEPARATOR_CHAR);
+            }
+            result.append(entry.getKey()).append(PAIR_SEPARATOR_CHAR).append(entry.getValue());
         }
-        return result.toString().substring(0, result.length() - 1);
+        return result.toString();
     }
 
     /**
      * Parses and form-urldecodes a querystring-like string into a map
+     * <p>
+     * Empty parameters (e.g. "a=1&&b=2") are skipped, the value is everything after the first '=', and the last
+     * value wins for repeated keys. Use {@link QueryParams} to keep all values of repeated keys.
+     * </p>
      * 
      * @param queryString querystring-like String
      * @return a map with the form-urldecoded parameters
      */
     // TODO Move to MapUtils
     public static Map<String, String> queryStringToMap(String queryString) {
-        Map<String, String> result = new HashMap<String, String>();
+        final Map<String, String> result = new HashMap<String, String>();
         if (queryString != null && queryString.length() > 0) {
-            for (String param : queryString.split(PARAM_SEPARATOR)) {
-                String pair[] = param.split(PAIR_SEPARATOR);
-                String key = formURLDecode(pair[0]);
-                String value = pair.length > 1 ? formURLDecode(pair[1]) : EMPTY_STRING;
-                result.put(key, value);
-            }
+            parseQueryString(queryString, new QueryParamHandler() {
+                @Override
+                public void handle(String query, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+                    result.put(formURLDecode(query, keyStart, keyEnd), formURLDecode(query, valueStart, valueEnd));
+                }
+            });
         }
         return result;
     }
 
+    /**
+     * Walks a querystring-like string once and reports the raw (still encoded) region of every parameter to the
+     * handler, nothing is decoded or copied. Empty parameters are skipped, a parameter without '=' has an empty value.
+     * 
+     * @param queryString querystring-like String
+     * @param handler receives the key and value region of each parameter in order
+     */
+    public static void parseQueryString(String queryString, QueryParamHandler handler) {
+        int length = queryString.length();
+        int start = 0;
+        while (start < length) {
+            int end = queryString.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                // 只在当前参数内查找'='，避免无'='的参数每次扫描到字符串末尾
+                int separator = start;
+                while (separator < end && queryString.charAt(separator) != '=') {
+                    separator++;
+                }
+                if (separator == end) {
+                    handler.handle(queryString, start, end, end, end);
+                } else {
+                    handler.handle(queryString, start, separator, separator + 1, end);
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Extracts the host from a url without building a java.net.URI. Urls without "http://" or "https://" are treated
+     * as starting with the authority. Userinfo and port are skipped, IPv6 literals are returned with brackets (same as
+     * URI.getHost()).
+     * 
+     * @param url url, may omit the scheme
+     * @return the host, or empty string if the url has no valid host
+     */
     public static String parseHost(String url) {
-        if (!(StringUtils.startsWithIgnoreCase(url, "http://") || StringUtils.startsWithIgnoreCase(url, "https://"))) {
-            url = "http://" + url;
+        if (url == null) {
+            return StringUtils.EMPTY;
         }
-        String returnVal = StringUtils.EMPTY;
-        try {
-            URI uri = new URI(url);
-            returnVal = uri.getHost();
-        } catch (Exception e) {
+        int start = 0;
+        if (url.regionMatches(true, 0, HTTP_SCHEME, 0, HTTP_SCHEME.length())) {
+            start = HTTP_SCHEME.length();
+        } else if (url.regionMatches(true, 0, HTTPS_SCHEME, 0, HTTPS_SCHEME.length())) {
+            start = HTTPS_SCHEME.length();
         }
 
-        return returnVal;
-    }
+        // authority到第一个'/'、'?'、'#'为止
+        int end = url.length();
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        int userInfoEnd = url.lastIndexOf('@', end - 1);
+        if (userInfoEnd >= start) {
+            start = userInfoEnd + 1;
+        }
+        if (start >= end) {
+            return StringUtils.EMPTY;
+        }
 
-    private static final class EncodingRule {
-        private final String ch;
-        private final String toCh;
+        int hostEnd;
+        if (url.charAt(start) == '[') {
+            int close = url.indexOf(']', start);
+            if (close < 0 || close >= end || !isIPv6Literal(url, start + 1, close)) {
+                return StringUtils.EMPTY;
+            }
+            hostEnd = close + 1;
+        } else {
+            hostEnd = start;
+            while (hostEnd < end && url.charAt(hostEnd) != ':') {
+                if (!isHostChar(url.charAt(hostEnd))) {
+                    return StringUtils.EMPTY;
+                }
+                hostEnd++;
+            }
+            if (hostEnd == start) {
+                return StringUtils.EMPTY;
+            }
+        }
+        if (hostEnd < end) {
+            if (url.charAt(hostEnd) != ':') {
+                return StringUtils.EMPTY;
+            }
+            for (int i = hostEnd + 1; i < end; i++) {
+                char c = url.charAt(i);
+                if (c < '0' || c > '9') {
+                    return StringUtils.EMPTY;
+                }
+            }
+        }
+        return url.substring(start, hostEnd);
+    }
 
-        EncodingRule(String ch, String toCh) {
-            this.ch = ch;
-            this.toCh = toCh;
+    /**
+     * Same as parseHost, but keeps recently parsed hosts in a bounded concurrent cache. Use it where the same urls are
+     * parsed repeatedly.
+     * 
+     * @param url url, may omit the scheme
+     * @return the host, or empty string if the url has no valid host
+     */
+    public static String parseHostCached(String url) {
+        if (url == null) {
+            return StringUtils.EMPTY;
+        }
+        Cache<String, String> cache = HostCacheHolder.HOST_CACHE;
+        String host = cache.getIfPresent(url);
+        if (host == null) {
+            host = parseHost(url);
+            cache.put(url, host);
         }
+        return host;
+    }
+
+    private static boolean isHostChar(char c) {
+        return c < 0x80 ? HOST_CHARS[c] : !Character.isWhitespace(c) && !Character.isISOControl(c);
+    }
 
-        String apply(String string) {
-            return string.replace(ch, toCh);
+    private static boolean isIPv6Literal(String url, int start, int end) {
+        if (start == end) {
+            return false;
         }
+        boolean zone = false;
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (zone) {
+                // zone id，如[fe80::1%25en0]
+                if (c >= 0x80 || !UNRESERVED[c] && c != '%') {
+                    return false;
+                }
+            } else if (c == '%') {
+                zone = true;
+            } else if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * parseHostCached首次调用时才创建缓存
+     */
+    private static final class HostCacheHolder {
+
+        static final Cache<String, String> HOST_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_HOSTS)
+            .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+            .build();
     }
 
+    /**
+     * 查询字符串参数的回调，参数为未解码的原始区间，需要时通过formURLDecode(query, start, end)解码
+     */
+    public interface QueryParamHandler {
+
+        void handle(String query, int keyStart, int keyEnd, int valueStart, int valueEnd);
+    }
+
+    /**
+     * 类的实现描述：可重复使用的查询参数多值表，保存参数在查询字符串中的区间，key和value在首次访问时才解码并缓存
+     * 
+     * <pre>
+     * 不含'%'和'+'的参数不解码，按key查找时也不需要解码
+     * 非线程安全，可在线程内复用：params.parse(query)会清空上一次的内容
+     * </pre>
+     */
+    public static final class QueryParams implements QueryParamHandler {
+
+        private String   query;
+
+        /**
+         * 每个参数4个位置：keyStart, keyEnd, valueStart, valueEnd
+         */
+        private int[]    offsets = new int[32];
+
+        /**
+         * 每个参数2个位置：解码后的key, value
+         */
+        private String[] decoded = new String[16];
+
+        private int      size;
+
+        /**
+         * 清空后解析新的查询字符串
+         * 
+         * @param queryString querystring-like String，可为null
+         * @return this
+         */
+        public QueryParams parse(String queryString) {
+            clear();
+            if (queryString != null) {
+                query = queryString;
+                parseQueryString(queryString, this);
+            }
+            return this;
+        }
+
+        public void clear() {
+            Arrays.fill(decoded, 0, size * 2, null);
+            size = 0;
+            query = null;
+        }
+
+        @Override
+        public void handle(String query, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+            if (size * 4 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                decoded = Arrays.copyOf(decoded, decoded.length * 2);
+            }
+            int base = size * 4;
+            offsets[base] = keyStart;
+            offsets[base + 1] = keyEnd;
+            offsets[base + 2] = valueStart;
+            offsets[base + 3] = valueEnd;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public String getKey(int index) {
+            checkIndex(index);
+            return decode(index * 2);
+        }
+
+        public String getValue(int index) {
+            checkIndex(index);
+            return decode(index * 2 + 1);
+        }
+
+        /**
+         * @param key 解码后的key
+         * @return key的第一个值，不存在时返回null
+         */
+        public String getFirst(String key) {
+            for (int i = 0; i < size; i++) {
+                if (keyEquals(i, key)) {
+                    return decode(i * 2 + 1);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @param key 解码后的key
+         * @return key的所有值，按出现顺序排列，不存在时返回空列表
+         */
+        public List<String> getAll(String key) {
+            List<String> values = null;
+            for (int i = 0; i < size; i++) {
+                if (keyEquals(i, key)) {
+                    if (values == null) {
+                        values = new ArrayList<String>(2);
+                    }
+                    values.add(decode(i * 2 + 1));
+                }
+            }
+            return values == null ? Collections.<String> emptyList() : values;
+        }
+
+        public boolean containsKey(String key) {
+            for (int i = 0; i < size; i++) {
+                if (keyEquals(i, key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean keyEquals(int index, String key) {
+            String cached = decoded[index * 2];
+            if (cached != null) {
+                return cached.equals(key);
+            }
+            int start = offsets[index * 4];
+            int end = offsets[index * 4 + 1];
+            for (int i = start; i < end; i++) {
+                char c = query.charAt(i);
+                if (c == '%' || c == '+') {
+                    return decode(index * 2).equals(key);
+                }
+            }
+            return end - start == key.length() && query.regionMatches(start, key, 0, key.length());
+        }
+
+        private String decode(int slot) {
+            String value = decoded[slot];
+            if (value == null) {
+                value = formURLDecode(query, offsets[slot * 2], offsets[slot * 2 + 1]);
+                decoded[slot] = value;
+            }
+            return value;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            }
+        }
+    }
 }
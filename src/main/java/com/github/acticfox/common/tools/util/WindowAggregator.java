@@ -0,0 +1,411 @@
+package com.github.acticfox.common.tools.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.acticfox.common.tools.thredpool.ShutdownCoordinator;
+import com.github.acticfox.common.tools.thredpool.Shutdownable;
+
+/**
+ * 类的实现描述：按时间窗口分key聚合的handler，可作为DataPipeline的一个handler使用，窗口结束后将聚合结果推送到下游DataPipeline
+ *
+ * <pre>
+ * 数据按到达时间落入长度为slideMillis的分片，每个分片中每个key对应一个LongAccumulator（分段累加，写入无锁竞争），
+ * 窗口结束时合并窗口覆盖的分片得到结果：
+ *   滚动窗口：windowMillis == slideMillis
+ *   滑动窗口：windowMillis为slideMillis的整数倍
+ * 计数可使用Reducer.sum()并让valueExtractor返回1
+ * 窗口输出前先封闭窗口的最后一个分片并等待正在写入的数据完成，之后到达的数据计入下一个分片，不会丢失
+ * 创建后注册到ShutdownCoordinator，关闭时输出截至当前分片的窗口
+ * </pre>
+ */
+public class WindowAggregator<T, K> implements DataPipeline.DataHandler<T>, Shutdownable, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WindowAggregator.class);
+
+    /**
+     * 分片结束后等待一小段时间再输出，避免分片边界上正在写入的数据丢失
+     */
+    private static final long MAX_EMIT_GRACE_MILLIS = 100;
+
+    private static final AtomicInteger EMITTER_SEQUENCE = new AtomicInteger();
+
+    private final Function<? super T, ? extends K> keyExtractor;
+
+    private final ToLongFunction<? super T> valueExtractor;
+
+    private final Reducer reducer;
+
+    private final long windowMillis;
+
+    private final long slideMillis;
+
+    private final int panesPerWindow;
+
+    private final long emitGraceMillis;
+
+    private final DataPipeline<WindowResult<K>> downstream;
+
+    private final Map<Long, Pane<K>> panes = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 下一个待输出窗口的最后一个分片，之前的分片都已封闭，仅在scheduler线程中修改
+     */
+    private volatile long nextEmitPane;
+
+    private volatile boolean closed;
+
+    private WindowAggregator(long windowMillis, long slideMillis, Function<? super T, ? extends K> keyExtractor,
+                             ToLongFunction<? super T> valueExtractor, Reducer reducer,
+                             DataPipeline<WindowResult<K>> downstream) {
+        Objects.requireNonNull(keyExtractor, "keyExtractor is null");
+        Objects.requireNonNull(valueExtractor, "valueExtractor is null");
+        Objects.requireNonNull(reducer, "reducer is null");
+        Objects.requireNonNull(downstream, "downstream is null");
+        if (slideMillis <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis and slideMillis must be greater than zero");
+        }
+        if (windowMillis % slideMillis != 0) {
+            throw new IllegalArgumentException("windowMillis must be a multiple of slideMillis");
+        }
+        this.keyExtractor = keyExtractor;
+        this.valueExtractor = valueExtractor;
+        this.reducer = reducer;
+        this.windowMillis = windowMillis;
+        this.slideMillis = slideMillis;
+        this.panesPerWindow = (int)(windowMillis / slideMillis);
+        this.emitGraceMillis = Math.min(MAX_EMIT_GRACE_MILLIS, slideMillis / 10);
+        this.downstream = downstream;
+        this.nextEmitPane = System.currentTimeMillis() / slideMillis;
+
+        this.name = "windowAggregator_emitter_" + EMITTER_SEQUENCE.incrementAndGet();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, (r) -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long now = System.currentTimeMillis();
+        long initialDelay = (now / slideMillis + 1) * slideMillis - now + emitGraceMillis;
+        executor.scheduleAtFixedRate(this::emitClosedWindows, initialDelay, slideMillis, TimeUnit.MILLISECONDS);
+        this.scheduler = executor;
+        ShutdownCoordinator.register(this);
+    }
+
+    /**
+     * 滚动窗口聚合
+     *
+     * @param windowMillis 窗口长度
+     * @param keyExtractor 聚合key
+     * @param valueExtractor 聚合值
+     * @param reducer 聚合方式
+     * @param downstream 窗口结果的下游管道
+     * @return
+     */
+    public static <T, K> WindowAggregator<T, K> tumbling(long windowMillis,
+                                                         Function<? super T, ? extends K> keyExtractor,
+                                                         ToLongFunction<? super T> valueExtractor, Reducer reducer,
+                                                         DataPipeline<WindowResult<K>> downstream) {
+        return new WindowAggregator<>(windowMillis, windowMillis, keyExtractor, valueExtractor, reducer, downstream);
+    }
+
+    /**
+     * 滑动窗口聚合，每slideMillis输出一次最近windowMillis内的聚合结果
+     *
+     * @param windowMillis 窗口长度，必须为slideMillis的整数倍
+     * @param slideMillis 滑动步长
+     * @param keyExtractor 聚合key
+     * @param valueExtractor 聚合值
+     * @param reducer 聚合方式
+     * @param downstream 窗口结果的下游管道
+     * @return
+     */
+    public static <T, K> WindowAggregator<T, K> sliding(long windowMillis, long slideMillis,
+                                                        Function<? super T, ? extends K> keyExtractor,
+                                                        ToLongFunction<? super T> valueExtractor, Reducer reducer,
+                                                        DataPipeline<WindowResult<K>> downstream) {
+        return new WindowAggregator<>(windowMillis, slideMillis, keyExtractor, valueExtractor, reducer, downstream);
+    }
+
+    /**
+     * 晚到的数据（所在分片已封闭）计入下一个待输出的分片；
+     * 分片封闭后写入失败的数据重新选择分片，已删除的分片被重新创建时同样因早于nextEmitPane而重新选择
+     */
+    @Override
+    public void handle(T t) {
+        if (closed) {
+            throw new IllegalStateException(name + " is closed");
+        }
+        K key = keyExtractor.apply(t);
+        long value = valueExtractor.applyAsLong(t);
+        while (true) {
+            long index = Math.max(System.currentTimeMillis() / slideMillis, nextEmitPane);
+            Pane<K> pane = panes.computeIfAbsent(index, (p) -> new Pane<>());
+            int stripe = pane.enter();
+            try {
+                if (!pane.sealed && index >= nextEmitPane) {
+                    pane.accumulators.computeIfAbsent(key, (k) -> reducer.newAccumulator()).accumulate(value);
+                    return;
+                }
+            } finally {
+                pane.exit(stripe);
+            }
+        }
+    }
+
+    private void emitClosedWindows() {
+        try {
+            emitWindowsBefore((System.currentTimeMillis() - emitGraceMillis) / slideMillis);
+        } catch (Throwable ex) {
+            logger.error("windowAggregator emit error,errorMsg:{}", ex.getMessage(), ex);
+        }
+    }
+
+    private void emitWindowsBefore(long endPane) {
+        while (nextEmitPane < endPane) {
+            emitWindow(nextEmitPane);
+        }
+    }
+
+    private void emitWindow(long lastPane) {
+        // 之前的分片都已封闭，封闭lastPane后窗口内的数据不再变化
+        panes.computeIfAbsent(lastPane, (p) -> new Pane<>()).seal();
+        long firstPane = lastPane - panesPerWindow + 1;
+        Map<K, long[]> merged = new HashMap<>();
+        for (long pane = firstPane; pane <= lastPane; pane++) {
+            Pane<K> accumulators = panes.get(pane);
+            if (accumulators == null) {
+                continue;
+            }
+            accumulators.accumulators.forEach((key, accumulator) -> {
+                long[] value = merged.computeIfAbsent(key, (k) -> new long[] {reducer.identity});
+                value[0] = reducer.operator.applyAsLong(value[0], accumulator.get());
+            });
+        }
+        nextEmitPane = lastPane + 1;
+        // 下一个窗口不再包含firstPane；早于nextEmitPane被重新创建的空分片一并清理
+        panes.keySet().removeIf((pane) -> pane <= firstPane);
+
+        if (merged.isEmpty()) {
+            return;
+        }
+        long windowStart = firstPane * slideMillis;
+        long windowEnd = windowStart + windowMillis;
+        List<WindowResult<K>> results = new ArrayList<>(merged.size());
+        merged.forEach((key, value) -> results.add(new WindowResult<>(key, windowStart, windowEnd, value[0])));
+        downstream.pushData(results);
+    }
+
+    /**
+     * 停止接收数据，在输出线程中输出截至当前分片（包含未结束的当前分片）的窗口后停止输出线程，不阻塞
+     */
+    @Override
+    public synchronized void shutdown() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scheduler.execute(this::flush);
+        scheduler.shutdown();
+    }
+
+    private void flush() {
+        try {
+            emitWindowsBefore(System.currentTimeMillis() / slideMillis + 1);
+        } catch (Throwable ex) {
+            logger.error("windowAggregator flush error,errorMsg:{}", ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return scheduler.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return 未输出的分片数
+     */
+    @Override
+    public int shutdownNow() {
+        scheduler.shutdownNow();
+        long emitted = nextEmitPane;
+        int pending = 0;
+        for (Long pane : panes.keySet()) {
+            if (pane >= emitted) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 停止接收数据，输出截至当前分片的窗口，等待输出完成
+     */
+    @Override
+    public void close() {
+        shutdown();
+        try {
+            awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ShutdownCoordinator.unregister(this);
+    }
+
+    /**
+     * 一个分片的聚合数据；写入前在按线程分段的计数上登记，封闭时设置sealed后等待所有分段归零，
+     * 登记后看到sealed为false的写入一定在封闭完成前结束，之后的写入都能看到sealed
+     *
+     * @param <K>
+     */
+    private static final class Pane<K> {
+
+        /**
+         * 计数分段的间隔，避免相邻分段位于同一缓存行
+         */
+        private static final int STRIPE_PADDING = 16;
+
+        private static final int STRIPE_MASK = stripeMask();
+
+        private final Map<K, LongAccumulator> accumulators = new ConcurrentHashMap<>();
+
+        private final AtomicIntegerArray writers = new AtomicIntegerArray((STRIPE_MASK + 1) * STRIPE_PADDING);
+
+        private volatile boolean sealed;
+
+        /**
+         * 分段数为不小于CPU核数2倍的2的幂
+         */
+        private static int stripeMask() {
+            int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+            return stripes * 2 - 1;
+        }
+
+        int enter() {
+            int stripe = ((int)Thread.currentThread().getId() & STRIPE_MASK) * STRIPE_PADDING;
+            writers.incrementAndGet(stripe);
+            return stripe;
+        }
+
+        void exit(int stripe) {
+            writers.decrementAndGet(stripe);
+        }
+
+        void seal() {
+            sealed = true;
+            for (int i = 0; i < writers.length(); i += STRIPE_PADDING) {
+                while (writers.get(i) != 0) {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    public static final class Reducer {
+
+        private final LongBinaryOperator operator;
+
+        private final long identity;
+
+        private Reducer(LongBinaryOperator operator, long identity) {
+            this.operator = operator;
+            this.identity = identity;
+        }
+
+        /**
+         * @param operator 需满足结合律和交换律
+         * @param identity operator的单位元
+         * @return
+         */
+        public static Reducer of(LongBinaryOperator operator, long identity) {
+            Objects.requireNonNull(operator, "operator is null");
+            return new Reducer(operator, identity);
+        }
+
+        public static Reducer sum() {
+            return new Reducer(Long::sum, 0L);
+        }
+
+        public static Reducer max() {
+            return new Reducer(Math::max, Long.MIN_VALUE);
+        }
+
+        public static Reducer min() {
+            return new Reducer(Math::min, Long.MAX_VALUE);
+        }
+
+        LongAccumulator newAccumulator() {
+            return new LongAccumulator(operator, identity);
+        }
+    }
+
+    public static final class WindowResult<K> {
+
+        private final K key;
+
+        private final long windowStart;
+
+        private final long windowEnd;
+
+        private final long value;
+
+        WindowResult(K key, long windowStart, long windowEnd, long value) {
+            this.key = key;
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.value = value;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * 窗口开始时间（包含），毫秒
+         */
+        public long getWindowStart() {
+            return windowStart;
+        }
+
+        /**
+         * 窗口结束时间（不包含），毫秒
+         */
+        public long getWindowEnd() {
+            return windowEnd;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "WindowResult{key=" + key + ",windowStart=" + windowStart + ",windowEnd=" + windowEnd + ",value="
+                + value + "}";
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.github.acticfox.common.tools.spring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.acticfox.common.tools.util.StartupTimeline;
+
+/**
+ * 类的实现描述：ContextListenerManager启动顺序测试
+ */
+public class ContextListenerManagerTest {
+
+    private final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<ConcreteContextListener> registered = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (ConcreteContextListener listener : registered) {
+            ContextListenerManager.removeListener(listener);
+        }
+        System.clearProperty(ContextListenerManager.START_THREADS_PROPERTY);
+        System.clearProperty(ContextListenerManager.START_TIMEOUT_PROPERTY);
+        ContextListenerManager.onContextClosed();
+    }
+
+    @Test
+    public void startsByPhaseThenDependencies() {
+        add(new Recorder("late", 1));
+        add(new Service("service", 0));
+        add(new Client("client", 0));
+        add(new Recorder("early", -1));
+
+        ContextListenerManager.onContextRefreshed();
+
+        assertEquals(Arrays.asList("early", "service", "client", "late"), started);
+    }
+
+    @Test
+    public void dependencyRegisteredLaterStartsFirst() {
+        add(new Client("client", 0));
+        add(new Recorder("other", 0));
+        add(new Service("service", 0));
+
+        ContextListenerManager.onContextRefreshed();
+
+        assertEquals(Arrays.asList("other", "service", "client"), started);
+    }
+
+    @Test
+    public void cycleFallsBackToRegistrationOrder() {
+        add(new CycleA("a"));
+        add(new CycleB("b"));
+        add(new Recorder("c", -1));
+
+        ContextListenerManager.onContextRefreshed();
+
+        assertEquals(Arrays.asList("a", "b", "c"), started);
+    }
+
+    @Test
+    public void parallelStartKeepsDependencyOrder() {
+        System.setProperty(ContextListenerManager.START_THREADS_PROPERTY, "4");
+        for (int i = 0; i < 8; i++) {
+            add(new Client("client" + i, 0));
+        }
+        add(new Service("service", 0));
+        add(new Recorder("late", 1));
+
+        ContextListenerManager.onContextRefreshed();
+
+        assertEquals(10, started.size());
+        assertEquals("service", started.get(0));
+        assertEquals("late", started.get(9));
+        assertTrue(WarmUpManager.isReady());
+    }
+
+    @Test
+    public void parallelStartTimeoutFailsRefresh() {
+        System.setProperty(ContextListenerManager.START_THREADS_PROPERTY, "2");
+        System.setProperty(ContextListenerManager.START_TIMEOUT_PROPERTY, "1");
+        add(new Recorder("fast", 0));
+        add(new Recorder("slow", 0) {
+            @Override
+            public void onContextRefreshed() throws Exception {
+                Thread.sleep(10000);
+            }
+        });
+
+        try {
+            ContextListenerManager.onContextRefreshed();
+            fail("timeout expected");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("timeout"));
+        }
+        assertFalse(WarmUpManager.isReady());
+    }
+
+    @Test
+    public void refreshDrainsStartupTimeline() {
+        add(new Recorder("listener", 0));
+
+        ContextListenerManager.onContextRefreshed();
+
+        assertEquals(Arrays.asList("listener"), started);
+        assertTrue(StartupTimeline.getPhases().isEmpty());
+    }
+
+    private void add(ConcreteContextListener listener) {
+        registered.add(listener);
+        ContextListenerManager.addListener(listener);
+    }
+
+    private class Recorder implements ConcreteContextListener {
+
+        private final String name;
+
+        private final int phase;
+
+        Recorder(String name, int phase) {
+            this.name = name;
+            this.phase = phase;
+        }
+
+        @Override
+        public void onContextRefreshed() throws Exception {
+            started.add(name);
+        }
+
+        @Override
+        public void onContextClosed() {
+        }
+
+        @Override
+        public int getPhase() {
+            return phase;
+        }
+    }
+
+    private class Service extends Recorder {
+
+        Service(String name, int phase) {
+            super(name, phase);
+        }
+    }
+
+    private class Client extends Recorder {
+
+        Client(String name, int phase) {
+            super(name, phase);
+        }
+
+        @Override
+        public Collection<Class<? extends ConcreteContextListener>> getDependencies() {
+            return Collections.<Class<? extends ConcreteContextListener>> singletonList(Service.class);
+        }
+    }
+
+    private class CycleA extends Recorder {
+
+        CycleA(String name) {
+            super(name, 0);
+        }
+
+        @Override
+        public Collection<Class<? extends ConcreteContextListener>> getDependencies() {
+            return Collections.<Class<? extends ConcreteContextListener>> singletonList(CycleB.class);
+        }
+    }
+
+    private class CycleB extends Recorder {
+
+        CycleB(String name) {
+            super(name, 0);
+        }
+
+        @Override
+        public Collection<Class<? extends ConcreteContextListener>> getDependencies() {
+            return Collections.<Class<? extends ConcreteContextListener>> singletonList(CycleA.class);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.acticfox.common.tools.spring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.acticfox.common.tools.thredpool.ThreadPoolFactory;
+import com.github.acticfox.common.tools.util.PropertyUtil;
+
+/**
+ * 类的实现描述：DeclaredThreadPoolStarter创建、调整线程池及关闭测试，属性文件见src/test/resources/reload/threadpool.properties
+ */
+public class DeclaredThreadPoolStarterTest {
+
+    private static final String THREAD_POOL_NAME = "declaredStarterTest";
+
+    private final LinkedBlockingQueue<Set<String>> changes = new LinkedBlockingQueue<>();
+
+    private final PropertyUtil.PropertyListener listener = changes::add;
+
+    private final DeclaredThreadPoolStarter starter = new DeclaredThreadPoolStarter();
+
+    private File threadPoolFile;
+
+    private byte[] threadPoolContent;
+
+    @Before
+    public void setUp() throws Exception {
+        threadPoolFile = new File(
+            DeclaredThreadPoolStarterTest.class.getResource("/reload/threadpool.properties").toURI());
+        threadPoolContent = Files.readAllBytes(threadPoolFile.toPath());
+        PropertyUtil.addListener(listener);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        starter.shutdown();
+        PropertyUtil.removeListener(listener);
+        PropertyUtil.stopWatching();
+        Files.write(threadPoolFile.toPath(), threadPoolContent);
+        PropertyUtil.reload();
+        ThreadPoolExecutor threadPoolExecutor = ThreadPoolFactory.getThreadPool(THREAD_POOL_NAME);
+        if (threadPoolExecutor != null) {
+            threadPoolExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void resizesDeclaredThreadPoolUntilShutdown() throws Exception {
+        starter.start();
+        ThreadPoolExecutor threadPoolExecutor = ThreadPoolFactory.getThreadPool(THREAD_POOL_NAME);
+        assertNotNull(threadPoolExecutor);
+        assertEquals(2, threadPoolExecutor.getMaximumPoolSize());
+
+        writeSize(3);
+        PropertyUtil.reload();
+        assertEquals(3, threadPoolExecutor.getMaximumPoolSize());
+
+        starter.shutdown();
+        writeSize(4);
+        PropertyUtil.reload();
+        assertEquals(3, threadPoolExecutor.getMaximumPoolSize());
+    }
+
+    @Test
+    public void shutdownKeepsOtherListenersAndWatching() throws Exception {
+        starter.start();
+        starter.shutdown();
+        changes.clear();
+
+        // 文件监视仍在运行，其他监听器继续收到变更
+        writeSize(5);
+        Set<String> changedKeys = changes.poll(10, TimeUnit.SECONDS);
+        assertNotNull("property file watching stopped", changedKeys);
+        assertTrue(changedKeys.contains("threadpool." + THREAD_POOL_NAME + ".size"));
+        assertEquals(2, ThreadPoolFactory.getThreadPool(THREAD_POOL_NAME).getMaximumPoolSize());
+    }
+
+    private void writeSize(int size) throws Exception {
+        Files.write(threadPoolFile.toPath(),
+            ("threadpool." + THREAD_POOL_NAME + ".size=" + size + "\n").getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.acticfox.common.tools.spring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 类的实现描述：WarmUpManager就绪状态测试
+ */
+public class WarmUpManagerTest {
+
+    @Before
+    public void setUp() {
+        WarmUpManager.markNotReady();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(WarmUpManager.TIMEOUT_PROPERTY);
+        WarmUpManager.markNotReady();
+    }
+
+    @Test
+    public void readyAfterTasksFinish() {
+        final AtomicInteger executed = new AtomicInteger();
+        WarmUpManager.register("count", iteration -> executed.incrementAndGet(), 100, 5000);
+        WarmUpManager.register("error", iteration -> {
+            throw new IllegalStateException("warmUp error");
+        }, 100, 5000);
+
+        WarmUpManager.warmUp();
+
+        assertEquals(100, executed.get());
+        assertTrue(WarmUpManager.isReady());
+    }
+
+    @Test
+    public void readyWithoutTasks() {
+        WarmUpManager.warmUp();
+
+        assertTrue(WarmUpManager.isReady());
+    }
+
+    @Test(timeout = 10000)
+    public void timeoutBlocksReadyUntilClosed() {
+        System.setProperty(WarmUpManager.TIMEOUT_PROPERTY, "1");
+        WarmUpManager.register("slow", iteration -> Thread.sleep(100), Integer.MAX_VALUE, 60000);
+
+        WarmUpManager.warmUp();
+        assertFalse(WarmUpManager.isReady());
+
+        // 子context刷新时没有新的预热任务，之前超时仍不能就绪
+        WarmUpManager.warmUp();
+        assertFalse(WarmUpManager.isReady());
+        WarmUpManager.register("fast", iteration -> {
+        }, 10, 5000);
+        WarmUpManager.warmUp();
+        assertFalse(WarmUpManager.isReady());
+
+        WarmUpManager.markNotReady();
+        WarmUpManager.warmUp();
+        assertTrue(WarmUpManager.isReady());
+    }
+}
@@ -0,0 +1,234 @@
+package com.github.acticfox.common.tools.thredpool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.acticfox.common.tools.util.RequestMerger;
+
+/**
+ * 类的实现描述：ShutdownCoordinator排空和超时测试
+ */
+public class ShutdownCoordinatorTest {
+
+    private final List<ThreadPoolExecutor> executors = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (ThreadPoolExecutor executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void drainsQueuedTasksBeforeExit() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executed = new AtomicInteger();
+        ThreadPoolExecutor executor = executor(1);
+        MultiTaskQueueThreadPool pool = new MultiTaskQueueThreadPool("drain", executor, queueConfig("q", 100));
+
+        List<FutureTask<Integer>> tasks = new ArrayList<>();
+        tasks.add(new FutureTask<Integer>(() -> {
+            release.await();
+            return executed.incrementAndGet();
+        }));
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new FutureTask<Integer>(() -> executed.incrementAndGet()));
+        }
+        for (FutureTask<Integer> task : tasks) {
+            pool.putTask("q", task);
+        }
+        release.countDown();
+
+        Map<String, Integer> leftovers = ShutdownCoordinator.shutdown(5, TimeUnit.SECONDS);
+
+        assertFalse(leftovers.containsKey(pool.getName()));
+        assertTrue(pool.isShutdown());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        for (FutureTask<Integer> task : tasks) {
+            task.get(1, TimeUnit.SECONDS);
+        }
+        assertEquals(21, executed.get());
+    }
+
+    @Test
+    public void rejectsTasksAfterShutdown() throws Exception {
+        MultiTaskQueueThreadPool pool = new MultiTaskQueueThreadPool("rejected", executor(1), queueConfig("q", 10));
+        ShutdownCoordinator.shutdown(5, TimeUnit.SECONDS);
+        try {
+            pool.putTask("q", new FutureTask<Integer>(() -> 1));
+            fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void requestMergerFlushesPendingRequests() throws Exception {
+        final AtomicInteger handled = new AtomicInteger();
+        RequestMerger<Integer, Integer> merger = new RequestMerger<Integer, Integer>(100, 60000, 100,
+            requests -> {
+                for (RequestMerger.Request<Integer, Integer> request : requests) {
+                    request.setResult(request.getParam() * 2);
+                    handled.incrementAndGet();
+                }
+            });
+        List<RequestMerger.Request<Integer, Integer>> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            RequestMerger.Request<Integer, Integer> request = new RequestMerger.Request<>();
+            request.setParam(i);
+            merger.putRequest(request);
+            requests.add(request);
+        }
+
+        // 合并间隔60秒，shutdown后不再等待
+        Map<String, Integer> leftovers = ShutdownCoordinator.shutdown(5, TimeUnit.SECONDS);
+
+        assertFalse(leftovers.containsKey(merger.getName()));
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(Integer.valueOf(i * 2), requests.get(i).getResult(1, TimeUnit.SECONDS));
+        }
+        assertEquals(5, handled.get());
+    }
+
+    @Test
+    public void timeoutCancelsLeftovers() throws Exception {
+        final CountDownLatch inHandler = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = executor(1);
+        // 消费线程投递第一个任务时阻塞在拒绝策略中且不响应中断，模拟下游卡住
+        executor.setRejectedExecutionHandler((r, e) -> {
+            inHandler.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.shutdown();
+        MultiTaskQueueThreadPool pool = new MultiTaskQueueThreadPool("stuck", executor, queueConfig("q", 100));
+        pool.putTask("q", new FutureTask<Integer>(() -> 0));
+        assertTrue(inHandler.await(5, TimeUnit.SECONDS));
+        List<FutureTask<Integer>> pending = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            FutureTask<Integer> task = new FutureTask<Integer>(() -> 1);
+            pool.putTask("q", task);
+            pending.add(task);
+        }
+
+        try {
+            Map<String, Integer> leftovers = ShutdownCoordinator.shutdown(300, TimeUnit.MILLISECONDS);
+
+            assertEquals(Integer.valueOf(3), leftovers.get(pool.getName()));
+            for (FutureTask<Integer> task : pending) {
+                try {
+                    task.get(1, TimeUnit.SECONDS);
+                    fail("CancellationException expected");
+                } catch (CancellationException expected) {
+                }
+            }
+        } finally {
+            release.countDown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void waitingEnqueuePolicyRejectsAfterShutdown() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(1), new WaitingEnqueuePolicy());
+        executors.add(executor);
+        executor.shutdown();
+        try {
+            executor.execute(() -> {
+            });
+            fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertTrue(executor.getQueue().isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void waitingEnqueuePolicyRejectsWhenInterrupted() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(1), new WaitingEnqueuePolicy());
+        executors.add(executor);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {
+        });
+
+        Thread.currentThread().interrupt();
+        try {
+            executor.execute(() -> {
+            });
+            fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException expected) {
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void rejectedTasksAreCancelled() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), new WaitingEnqueuePolicy());
+        executors.add(executor);
+        executor.shutdown();
+        MultiTaskQueueThreadPool pool = new MultiTaskQueueThreadPool("cancelled", executor, queueConfig("q", 10));
+        FutureTask<Integer> task = new FutureTask<Integer>(() -> 1);
+        pool.putTask("q", task);
+        try {
+            task.get(5, TimeUnit.SECONDS);
+            fail("CancellationException expected");
+        } catch (CancellationException expected) {
+        }
+        ShutdownCoordinator.shutdown(5, TimeUnit.SECONDS);
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private ThreadPoolExecutor executor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>());
+        executors.add(executor);
+        return executor;
+    }
+
+    private static List<MultiTaskQueueThreadPool.TaskQueueConfig> queueConfig(String name, int capacity) {
+        MultiTaskQueueThreadPool.TaskQueueConfig config = new MultiTaskQueueThreadPool.TaskQueueConfig();
+        config.setQueueName(name);
+        config.setQueueCapacity(capacity);
+        return Collections.singletonList(config);
+    }
+}
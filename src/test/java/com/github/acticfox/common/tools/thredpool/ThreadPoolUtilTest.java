@@ -0,0 +1,100 @@
+package com.github.acticfox.common.tools.thredpool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 类的实现描述：ThreadPoolUtil.executeInChunks测试
+ */
+public class ThreadPoolUtilTest {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(3, 3, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>());
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void processesEveryElementInAtMostPoolSizeChunks() {
+        List<Integer> data = range(1000);
+        Set<Integer> handled = ConcurrentHashMap.newKeySet();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        ThreadPoolUtil.executeInChunks(data, d -> {
+            handled.add(d);
+            threads.add(Thread.currentThread().getName());
+        }, executor);
+
+        assertEquals(1000, handled.size());
+        assertTrue(threads.toString(), threads.size() <= 3);
+        assertTrue(executor.getCompletedTaskCount() <= 3);
+    }
+
+    @Test
+    public void keepsOrderInsideChunks() {
+        List<Integer> data = range(90);
+        List<List<Integer>> perThread = Collections.synchronizedList(new ArrayList<List<Integer>>());
+        ThreadLocal<List<Integer>> current = ThreadLocal.withInitial(() -> {
+            List<Integer> list = Collections.synchronizedList(new ArrayList<Integer>());
+            perThread.add(list);
+            return list;
+        });
+
+        ThreadPoolUtil.executeInChunks(data, d -> current.get().add(d), executor);
+
+        int total = 0;
+        for (List<Integer> list : perThread) {
+            for (int i = 1; i < list.size(); i++) {
+                assertTrue(list.toString(), list.get(i - 1) < list.get(i));
+            }
+            total += list.size();
+        }
+        assertEquals(90, total);
+    }
+
+    @Test
+    public void failureDoesNotStopOtherElements() {
+        AtomicInteger handled = new AtomicInteger();
+        try {
+            ThreadPoolUtil.executeInChunks(range(100), d -> {
+                handled.incrementAndGet();
+                if (d % 10 == 0) {
+                    throw new IllegalStateException("fail " + d);
+                }
+            }, executor);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(100, handled.get());
+    }
+
+    @Test
+    public void emptyListSubmitsNothing() {
+        ThreadPoolUtil.executeInChunks(Collections.<Integer> emptyList(), d -> fail(), executor);
+        assertEquals(0, executor.getTaskCount());
+    }
+
+    private static List<Integer> range(int size) {
+        List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            data.add(i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * 类的实现描述：ClientIpExtractor和CidrTrie测试
+ */
+public class ClientIpExtractorTest {
+
+    private final ClientIpExtractor extractor = new ClientIpExtractor(Arrays.asList("10.0.0.0/8", "192.168.1.1",
+        "2001:db8::/32"));
+
+    @Test
+    public void untrustedRemoteAddrIgnoresHeader() {
+        assertEquals("8.8.8.8", extractor.getClientIP("8.8.8.8", "1.1.1.1"));
+    }
+
+    @Test
+    public void skipsTrustedProxiesFromTheRight() {
+        assertEquals("3.3.3.3", extractor.getClientIP("10.0.0.1", "1.1.1.1, 3.3.3.3, 10.1.2.3, 192.168.1.1"));
+    }
+
+    @Test
+    public void spoofedLeftmostHopIsNotReturned() {
+        assertEquals("4.4.4.4", extractor.getClientIP("10.0.0.1", "127.0.0.1,4.4.4.4"));
+    }
+
+    @Test
+    public void allTrustedReturnsLeftmost() {
+        assertEquals("10.9.9.9", extractor.getClientIP("10.0.0.1", "10.9.9.9, 10.0.0.2"));
+    }
+
+    @Test
+    public void stopsAtIllegalAddress() {
+        assertEquals("10.0.0.2", extractor.getClientIP("10.0.0.1", "5.5.5.5, unknown, 10.0.0.2"));
+    }
+
+    @Test
+    public void stripsPortsAndBrackets() {
+        assertEquals("5.5.5.5", extractor.getClientIP("10.0.0.1", "5.5.5.5:8080"));
+        assertEquals("2400:cb00::1", extractor.getClientIP("10.0.0.1", "[2400:cb00::1]:443, [2001:db8::5]"));
+    }
+
+    @Test
+    public void withoutHeaderReturnsRemoteAddr() {
+        assertEquals("10.0.0.1", extractor.getClientIP("10.0.0.1", null));
+    }
+
+    @Test
+    public void cidrTrieMatchesPrefixes() {
+        CidrTrie trie = new CidrTrie();
+        trie.add("10.0.0.0/8");
+        trie.add("172.16.0.0/12");
+        trie.add("2001:db8::/32");
+        trie.add("0.0.0.0/32");
+
+        assertTrue(trie.containsIPv4(0x0AFFFFFF));
+        assertTrue(trie.containsIPv4(0xAC1F0001));
+        assertFalse(trie.containsIPv4(0xAC200001));
+        assertTrue(trie.containsIPv4(0));
+        assertFalse(trie.containsIPv4(1));
+        assertTrue(trie.containsIPv6(0x20010DB8FFFF0000L, 1));
+        assertFalse(trie.containsIPv6(0x20010DB900000000L, 0));
+    }
+
+    @Test
+    public void mappedIPv6MatchesIPv4Prefix() {
+        assertTrue(extractor.isTrustedProxy("::ffff:10.1.1.1"));
+        assertFalse(extractor.isTrustedProxy("::ffff:11.1.1.1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIllegalCidr() {
+        new CidrTrie().add("10.0.0.0/33");
+    }
+}
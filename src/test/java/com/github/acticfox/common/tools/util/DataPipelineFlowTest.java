@@ -0,0 +1,125 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 类的实现描述：DataPipeline与Flow之间的适配测试
+ */
+public class DataPipelineFlowTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    /**
+     * 向订阅者投递数据的线程池，与handler的线程池分开，避免handler等待投递时占满线程
+     */
+    private final ExecutorService deliveryExecutor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        deliveryExecutor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void subscriberPushesBatchesAndRemainder() throws Exception {
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<Integer>());
+        DataPipeline<Integer> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(handled::add, executor);
+
+        CountDownLatch completed = new CountDownLatch(1);
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(deliveryExecutor, 4);
+        pipeline.subscribe(publisher, 3);
+        publisher.subscribe(new CompletionSubscriber(completed));
+        for (int i = 0; i < 10; i++) {
+            publisher.submit(i);
+        }
+        publisher.close();
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handled.size() < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        List<Integer> sorted = new ArrayList<>(handled);
+        Collections.sort(sorted);
+        assertEquals(10, sorted.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(i), sorted.get(i));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void publisherForwardsHandledData() throws Exception {
+        List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        CountDownLatch completed = new CountDownLatch(1);
+        DataPipeline.DataPublisher<Integer> publisher = DataPipeline.newPublisher(deliveryExecutor, 8);
+        publisher.subscribe(new CompletionSubscriber(completed) {
+            @Override
+            public void onNext(Integer item) {
+                received.add(item);
+                super.onNext(item);
+            }
+        });
+
+        DataPipeline<Integer> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(publisher, executor);
+        List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            data.add(i);
+        }
+        pipeline.pushData(data);
+        publisher.close();
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        List<Integer> sorted = new ArrayList<>(received);
+        Collections.sort(sorted);
+        assertEquals(data, sorted);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIllegalBatchSize() {
+        DataPipeline.<Integer> newPipeline().asSubscriber(0);
+    }
+
+    private static class CompletionSubscriber implements Flow.Subscriber<Integer> {
+
+        private final CountDownLatch completed;
+
+        CompletionSubscriber(CountDownLatch completed) {
+            this.completed = completed;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 类的实现描述：DataPipeline重试和死信测试
+ */
+public class DataPipelineRetryTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static DataPipeline.RetryPolicy retryPolicy(int maxAttempts, long initialDelayMillis) {
+        DataPipeline.RetryPolicy retryPolicy = new DataPipeline.RetryPolicy();
+        retryPolicy.setMaxAttempts(maxAttempts);
+        retryPolicy.setInitialDelayMillis(initialDelayMillis);
+        return retryPolicy;
+    }
+
+    @Test(timeout = 10000)
+    public void retriesUntilSuccess() throws Exception {
+        FailingHandler handler = new FailingHandler(2);
+        List<String> deadLetters = Collections.synchronizedList(new ArrayList<String>());
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(handler, executor, DataPipeline.HandlerTransferType.ASYNC, retryPolicy(3, 10),
+            (d, ex) -> deadLetters.add(d));
+
+        pipeline.pushData(Arrays.asList("a", "b"));
+        waitFor(() -> handler.handled.size() == 2);
+
+        assertEquals(Arrays.asList("a", "b"), sorted(handler.handled));
+        assertEquals(6, handler.attempts.get());
+        assertTrue(deadLetters.isEmpty());
+        assertTrue(pipeline.close(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void exhaustedRetriesGoToDeadLetter() throws Exception {
+        FailingHandler handler = new FailingHandler(Integer.MAX_VALUE);
+        List<Throwable> deadLetters = Collections.synchronizedList(new ArrayList<Throwable>());
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(handler, executor, DataPipeline.HandlerTransferType.ASYNC, retryPolicy(3, 10),
+            (d, ex) -> deadLetters.add(ex));
+
+        pipeline.pushData(Collections.singletonList("a"));
+        waitFor(() -> deadLetters.size() == 1);
+
+        assertEquals(3, handler.attempts.get());
+        assertEquals("fail a", deadLetters.get(0).getMessage());
+        assertTrue(pipeline.close(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void closeDispatchesPendingRetriesAndStopsDispatcher() throws Exception {
+        FailingHandler handler = new FailingHandler(1);
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(handler, executor, DataPipeline.HandlerTransferType.SYNC, retryPolicy(2, 300), null);
+
+        pipeline.pushData(Collections.singletonList("a"));
+        assertEquals(1, handler.attempts.get());
+        assertTrue(dispatcherAlive());
+
+        assertTrue(pipeline.close(5, TimeUnit.SECONDS));
+
+        assertFalse(dispatcherAlive());
+        waitFor(() -> handler.handled.size() == 1);
+    }
+
+    @Test(timeout = 10000)
+    public void missingDeadLetterHandlerDropsWithoutFailing() throws Exception {
+        FailingHandler handler = new FailingHandler(Integer.MAX_VALUE);
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(handler, executor, DataPipeline.HandlerTransferType.SYNC, retryPolicy(2, 10), null);
+
+        pipeline.pushData(Collections.singletonList("a"));
+        waitFor(() -> handler.attempts.get() == 2);
+
+        assertTrue(pipeline.close(5, TimeUnit.SECONDS));
+        assertTrue(handler.handled.isEmpty());
+    }
+
+    private static boolean dispatcherAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("dataPipeline_retry_dispatcher_" + FailingHandler.class.getName())
+                && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> sorted = new ArrayList<>(list);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * 每条数据前failures次处理失败
+     */
+    private static class FailingHandler implements DataPipeline.DataHandler<String> {
+
+        private final int failures;
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+
+        private final Map<String, AtomicInteger> failed = new ConcurrentHashMap<>();
+
+        FailingHandler(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void handle(String s) {
+            attempts.incrementAndGet();
+            if (failed.computeIfAbsent(s, (k) -> new AtomicInteger()).incrementAndGet() <= failures) {
+                throw new IllegalStateException("fail " + s);
+            }
+            handled.add(s);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.acticfox.common.tools.thredpool.ShutdownCoordinator;
+import com.github.acticfox.common.tools.thredpool.WaitingEnqueuePolicy;
+
+/**
+ * 类的实现描述：DataPipeline溢出到磁盘日志的测试
+ */
+public class DataPipelineSpillTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DataPipeline.SpillConfig<String> spillConfig(File journalFile, int maxInMemoryCount) {
+        DataPipeline.SpillConfig<String> spillConfig = new DataPipeline.SpillConfig<>();
+        spillConfig.setJournalFile(journalFile);
+        spillConfig.setSerializer(SpillJournalTest.STRING_SERIALIZER);
+        spillConfig.setMaxInMemoryCount(maxInMemoryCount);
+        spillConfig.setMappedRegionSize(1024);
+        return spillConfig;
+    }
+
+    private static List<String> data(int from, int to) {
+        List<String> data = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            data.add("data-" + i);
+        }
+        return data;
+    }
+
+    @Test(timeout = 10000)
+    public void pushDataDoesNotBlockOnSaturatedPool() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<Runnable>(true), new WaitingEnqueuePolicy());
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(200);
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(d -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(d);
+            done.countDown();
+        }, executor, spillConfig(folder.newFile(), 4));
+
+        long start = System.nanoTime();
+        pipeline.pushData(data(0, 200));
+        assertTrue("pushData blocked", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(data(0, 200), handled);
+        pipeline.close(1, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void rejectedSubmitIsRetriedWithoutLoss() throws Exception {
+        AtomicInteger rejections = new AtomicInteger(2);
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(handled::add, new DirectExecutor(rejections), spillConfig(folder.newFile(), 1));
+
+        pipeline.pushData(data(0, 5));
+        long deadline = System.currentTimeMillis() + 8000;
+        while (handled.size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(data(0, 5), handled);
+        pipeline.close(1, TimeUnit.SECONDS);
+    }
+
+    @Test(timeout = 10000)
+    public void closePersistsPendingDataToJournal() throws Exception {
+        File journalFile = folder.newFile();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<Runnable>(true), new WaitingEnqueuePolicy());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(d -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor, spillConfig(journalFile, 4));
+        pipeline.pushData(data(0, 20));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.close(200, TimeUnit.MILLISECONDS);
+        release.countDown();
+        executor.shutdown();
+
+        // data-0在处理中，data-1阻塞在提交中未移除，内存队列满时已连同后续数据按顺序写入日志
+        assertEquals(data(1, 20), readJournal(journalFile));
+    }
+
+    @Test(timeout = 10000)
+    public void shutdownCoordinatorPersistsPendingData() throws Exception {
+        File journalFile = folder.newFile();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<Runnable>(true), new WaitingEnqueuePolicy());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(d -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor, spillConfig(journalFile, 4));
+        pipeline.pushData(data(0, 20));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 分发线程阻塞在提交中时超时后被中断，未提交的数据写入日志，不计入剩余任务
+        Map<String, Integer> leftovers = ShutdownCoordinator.shutdown(200, TimeUnit.MILLISECONDS);
+        release.countDown();
+        executor.shutdown();
+
+        Integer leftover = leftovers.get("dataPipeline_spill_dispatcher_" + journalFile.getName());
+        assertTrue(leftover == null || leftover == 0);
+        assertEquals(data(1, 20), readJournal(journalFile));
+    }
+
+    @Test(timeout = 10000)
+    public void closeKeepsOrderWhenJournalIsEmpty() throws Exception {
+        File journalFile = folder.newFile();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<Runnable>(true), new WaitingEnqueuePolicy());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(d -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor, spillConfig(journalFile, 10));
+        pipeline.pushData(data(0, 5));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pipeline.close(200, TimeUnit.MILLISECONDS);
+        release.countDown();
+        executor.shutdown();
+
+        assertEquals(data(1, 5), readJournal(journalFile));
+    }
+
+    @Test(timeout = 10000)
+    public void acceptsNullData() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<Runnable>(true), new WaitingEnqueuePolicy());
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        List<String> data = Arrays.asList(null, "a", null, "b", null, "c", null);
+        CountDownLatch done = new CountDownLatch(data.size());
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(d -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(d);
+            done.countDown();
+        }, executor, spillConfig(folder.newFile(), 2));
+
+        pipeline.pushData(data);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(data, handled);
+        pipeline.close(1, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void corruptedJournalRecordIsSkipped() throws Exception {
+        File journalFile = folder.newFile();
+        try (SpillJournal<String> journal = new SpillJournal<>(journalFile, SpillJournalTest.STRING_SERIALIZER)) {
+            journal.append("a");
+            journal.append("bad");
+            journal.append("b");
+        }
+        DataPipeline.SpillConfig<String> spillConfig = spillConfig(journalFile, 4);
+        spillConfig.setSerializer(new SpillJournal.Serializer<String>() {
+            @Override
+            public byte[] serialize(String s) throws IOException {
+                return SpillJournalTest.STRING_SERIALIZER.serialize(s);
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) throws IOException {
+                String s = SpillJournalTest.STRING_SERIALIZER.deserialize(bytes);
+                if ("bad".equals(s)) {
+                    throw new IllegalStateException("bad record");
+                }
+                return s;
+            }
+        });
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        DataPipeline<String> pipeline = DataPipeline.newPipeline();
+        pipeline.addHandler(handled::add, new DirectExecutor(new AtomicInteger()), spillConfig);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handled.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList("a", "b"), handled);
+        assertTrue(pipeline.close(1, TimeUnit.SECONDS));
+        assertEquals(Collections.emptyList(), readJournal(journalFile));
+    }
+
+    private static List<String> readJournal(File journalFile) throws Exception {
+        try (SpillJournal<String> journal = new SpillJournal<>(journalFile, SpillJournalTest.STRING_SERIALIZER)) {
+            List<String> persisted = new ArrayList<>();
+            while (!journal.isEmpty()) {
+                persisted.add(journal.poll());
+            }
+            return persisted;
+        }
+    }
+
+    /**
+     * 前几次提交被拒绝，之后在当前线程直接执行
+     */
+    private static class DirectExecutor extends AbstractExecutorService {
+
+        private final AtomicInteger rejections;
+
+        DirectExecutor(AtomicInteger rejections) {
+            this.rejections = rejections;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejections.getAndDecrement() > 0) {
+                throw new RejectedExecutionException("rejected for test");
+            }
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Arrays.asList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/**
+ * 类的实现描述：ErrorReporter按指纹限流测试
+ */
+public class ErrorReporterTest {
+
+    /**
+     * 记录error调用参数的logger
+     */
+    private static Logger recordingLogger(final List<Object[]> errors, final boolean errorEnabled) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] {Logger.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if ("isErrorEnabled".equals(method.getName())) {
+                        return errorEnabled;
+                    }
+                    if ("error".equals(method.getName())) {
+                        List<Object> flat = new ArrayList<Object>();
+                        for (Object arg : args) {
+                            if (arg instanceof Object[]) {
+                                flat.addAll(Arrays.asList((Object[]) arg));
+                            } else {
+                                flat.add(arg);
+                            }
+                        }
+                        errors.add(flat.toArray());
+                    }
+                    return null;
+                }
+            });
+    }
+
+    private static Exception failure(int site) {
+        // 不同的site在不同的行创建异常，指纹不同
+        if (site == 0) {
+            return new IllegalStateException("failure " + site);
+        }
+        return new IllegalStateException("failure " + site);
+    }
+
+    @Test
+    public void limitsLogsPerFingerprint() {
+        List<Object[]> errors = new ArrayList<Object[]>();
+        Logger logger = recordingLogger(errors, true);
+        ErrorReporter reporter = new ErrorReporter();
+        reporter.setMaxFullTracesPerWindow(2);
+        reporter.setMaxLogsPerWindow(5);
+
+        for (int i = 0; i < 20; i++) {
+            reporter.report(logger, failure(0), "call {} failed", "downstream");
+        }
+
+        assertEquals(5, errors.size());
+        for (int i = 0; i < 2; i++) {
+            Object[] args = errors.get(i);
+            assertEquals("call downstream failed", args[1]);
+            assertTrue(args[args.length - 1] instanceof IllegalStateException);
+        }
+        for (int i = 2; i < 5; i++) {
+            Object[] args = errors.get(i);
+            assertTrue(String.valueOf(args[0]).endsWith("stack trace omitted"));
+            assertTrue(!(args[args.length - 1] instanceof Throwable));
+        }
+        assertEquals(20, reporter.getReportedCount());
+        assertEquals(15, reporter.getSuppressedCount());
+    }
+
+    @Test
+    public void fingerprintsAreCountedSeparately() {
+        List<Object[]> errors = new ArrayList<Object[]>();
+        Logger logger = recordingLogger(errors, true);
+        ErrorReporter reporter = new ErrorReporter();
+        reporter.setMaxLogsPerWindow(1);
+
+        for (int i = 0; i < 3; i++) {
+            reporter.report(logger, failure(0), "first site");
+            reporter.report(logger, failure(1), "second site");
+        }
+
+        assertEquals(2, errors.size());
+        assertEquals(4, reporter.getSuppressedCount());
+    }
+
+    @Test
+    public void nextWindowReportsSuppressedCount() throws Exception {
+        List<Object[]> errors = new ArrayList<Object[]>();
+        Logger logger = recordingLogger(errors, true);
+        ErrorReporter reporter = new ErrorReporter();
+        reporter.setWindowMillis(50);
+        reporter.setMaxLogsPerWindow(1);
+
+        // 指纹包含调用处的帧，同一行上报
+        for (int i = 0; i < 5; i++) {
+            if (i == 4) {
+                Thread.sleep(100);
+            }
+            reporter.report(logger, failure(0), "error");
+        }
+
+        assertEquals(3, errors.size());
+        assertTrue(String.valueOf(errors.get(1)[0]).contains("similar errors suppressed"));
+        assertEquals(3, errors.get(1)[2]);
+        assertTrue(errors.get(2)[errors.get(2).length - 1] instanceof IllegalStateException);
+    }
+
+    @Test
+    public void disabledLoggerOnlyCounts() {
+        List<Object[]> errors = new ArrayList<Object[]>();
+        ErrorReporter reporter = new ErrorReporter();
+
+        reporter.report(recordingLogger(errors, false), failure(0), "error");
+
+        assertTrue(errors.isEmpty());
+        assertEquals(1, reporter.getReportedCount());
+    }
+
+    @Test
+    public void fingerprintUsesThrowSiteAndRootCause() {
+        assertEquals(ErrorReporter.fingerprint(failure(0)), ErrorReporter.fingerprint(failure(0)));
+        assertNotEquals(ErrorReporter.fingerprint(failure(0)), ErrorReporter.fingerprint(failure(1)));
+
+        Exception root = failure(0);
+        Exception wrapped = new RuntimeException(root);
+        assertSame(root, ExceptionUtil.getRootCause(wrapped));
+        assertNotEquals(ErrorReporter.fingerprint(new RuntimeException(failure(1))),
+            ErrorReporter.fingerprint(wrapped));
+    }
+}
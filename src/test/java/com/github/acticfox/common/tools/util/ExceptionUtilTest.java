@@ -0,0 +1,109 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * 类的实现描述：ExceptionUtil堆栈输出测试，与printStackTrace的输出比较
+ */
+public class ExceptionUtilTest {
+
+    private static StackTraceElement[] frames(String... methods) {
+        StackTraceElement[] trace = new StackTraceElement[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            int dot = methods[i].lastIndexOf('.');
+            trace[i] = new StackTraceElement(methods[i].substring(0, dot), methods[i].substring(dot + 1),
+                methods[i].substring(methods[i].lastIndexOf('.', dot - 1) + 1, dot) + ".java", 10 + i);
+        }
+        return trace;
+    }
+
+    private static <T extends Throwable> T withTrace(T throwable, String... methods) {
+        throwable.setStackTrace(frames(methods));
+        return throwable;
+    }
+
+    private static String printStackTrace(Throwable throwable) {
+        StringWriter out = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(out));
+        return out.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    private static Exception nested() {
+        IllegalStateException root = withTrace(new IllegalStateException("root"), "a.Dao.query", "a.Service.find",
+            "a.Controller.handle", "a.Main.main");
+        RuntimeException middle = withTrace(new RuntimeException("middle", root), "a.Service.find",
+            "a.Controller.handle", "a.Main.main");
+        middle.addSuppressed(withTrace(new IllegalArgumentException("suppressed"), "a.Resource.close",
+            "a.Service.find", "a.Controller.handle", "a.Main.main"));
+        return withTrace(new Exception("top", middle), "a.Controller.handle", "a.Main.main");
+    }
+
+    @Test
+    public void sameAsPrintStackTrace() {
+        Exception e = nested();
+        assertEquals(printStackTrace(e), ExceptionUtil.getStackTrace(e));
+    }
+
+    @Test
+    public void realStackTraceHasSameLines() {
+        Exception e = new Exception("real", new IllegalStateException("cause"));
+        String expected = printStackTrace(e).replaceAll("\tat [^\\s(]+/", "\tat ");
+        assertEquals(expected, ExceptionUtil.getStackTrace(e));
+    }
+
+    @Test
+    public void circularCauseChain() {
+        RuntimeException first = withTrace(new RuntimeException("first"), "a.First.run");
+        RuntimeException second = withTrace(new RuntimeException("second", first), "a.Second.run");
+        first.initCause(second);
+
+        String trace = ExceptionUtil.getStackTrace(second);
+
+        assertEquals("java.lang.RuntimeException: second\n\tat a.Second.run(Second.java:10)\n"
+            + "Caused by: java.lang.RuntimeException: first\n\tat a.First.run(First.java:10)\n"
+            + "Caused by: [CIRCULAR REFERENCE: java.lang.RuntimeException: second]\n", trace);
+        assertSame(first, ExceptionUtil.getRootCause(second));
+    }
+
+    @Test
+    public void truncatesAndFiltersFrames() {
+        Exception e = withTrace(new Exception("top"), "a.Service.find", "sun.reflect.Method.invoke",
+            "sun.reflect.Delegating.invoke", "a.Controller.handle", "a.Filter.doFilter", "a.Main.main");
+        ExceptionUtil.StackTraceFormat format = new ExceptionUtil.StackTraceFormat();
+        format.setMaxFrames(3);
+        format.setExcludedPackages(Arrays.asList("sun.reflect."));
+
+        String trace = ExceptionUtil.appendStackTrace(e, new StringBuilder(), format).toString();
+
+        assertEquals("java.lang.Exception: top\n\tat a.Service.find(Service.java:10)\n"
+            + "\t... 2 frames filtered\n\tat a.Controller.handle(Controller.java:13)\n"
+            + "\tat a.Filter.doFilter(Filter.java:14)\n\t... 1 frames truncated\n", trace);
+    }
+
+    @Test
+    public void appendsToAnyAppendable() throws Exception {
+        Exception e = nested();
+        StringWriter out = new StringWriter();
+        ExceptionUtil.appendStackTrace(e, out, new ExceptionUtil.StackTraceFormat());
+        assertEquals(ExceptionUtil.getStackTrace(e), out.toString());
+    }
+
+    @Test
+    public void causes() {
+        Exception e = nested();
+        assertSame(e.getCause(), ExceptionUtil.getCause(e));
+        assertEquals("root", ExceptionUtil.getRootCause(e).getMessage());
+        Exception single = new Exception();
+        assertSame(single, ExceptionUtil.getRootCause(single));
+        assertEquals("", ExceptionUtil.getStackTrace(null));
+        assertTrue(ExceptionUtil.getStackTrace(single).startsWith("java.lang.Exception\n"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * 类的实现描述：IPUtil地址解析及本机网络信息缓存测试
+ */
+public class IPUtilTest {
+
+    @Test
+    public void parseIPv4() {
+        assertEquals(0L, parseIPv4("0.0.0.0"));
+        assertEquals(0xFFFFFFFFL, parseIPv4("255.255.255.255"));
+        assertEquals(0x0A000001L, parseIPv4("10.0.0.1"));
+        assertEquals(0xC0A80164L, IPUtil.parseIPv4("x192.168.1.100y", 1, 14));
+    }
+
+    @Test
+    public void rejectsIllegalIPv4() {
+        String[] illegal = {"", "1.2.3", "1.2.3.4.5", "256.0.0.1", "01.2.3.4", "1..2.3", "1.2.3.", ".1.2.3",
+                            "1.2.3.4 ", "a.b.c.d", "1.2.3.-4"};
+        for (String ip : illegal) {
+            assertEquals(ip, -1L, parseIPv4(ip));
+        }
+    }
+
+    @Test
+    public void parseIPv6MatchesInetAddress() throws Exception {
+        String[] ips = {"::", "::1", "1::", "2001:db8::8a2e:370:7334", "2001:0db8:0000:0000:0000:ff00:0042:8329",
+                        "fe80::1:2:3:4", "1:2:3:4:5:6:7:8", "::ffff:10.0.0.1", "64:ff9b::192.0.2.33",
+                        "1:2:3:4:5:6:1.2.3.4"};
+        for (String ip : ips) {
+            long[] parsed = new long[2];
+            assertTrue(ip, IPUtil.parseIPv6(ip, 0, ip.length(), parsed));
+            ByteBuffer expected = ByteBuffer.wrap(ipv6Bytes(ip));
+            assertArrayEquals(ip, new long[] {expected.getLong(), expected.getLong()}, parsed);
+        }
+    }
+
+    @Test
+    public void rejectsIllegalIPv6() {
+        String[] illegal = {"", ":", ":1", "1:", "1:::2", "1::2::3", "1:2:3:4:5:6:7:8:9", "12345::", "g::1",
+                            "1:2:3:4:5:6:7", "::1.2.3", "1.2.3.4::"};
+        for (String ip : illegal) {
+            assertFalse(ip, IPUtil.parseIPv6(ip, 0, ip.length(), new long[2]));
+        }
+    }
+
+    @Test
+    public void isIPAddress() {
+        assertTrue(IPUtil.isIPAddress("10.0.0.1"));
+        assertTrue(IPUtil.isIPAddress("2001:db8::1"));
+        assertFalse(IPUtil.isIPAddress("unknown"));
+        assertFalse(IPUtil.isIPAddress(null));
+    }
+
+    private static long parseIPv4(String ip) {
+        return IPUtil.parseIPv4(ip, 0, ip.length());
+    }
+
+    /**
+     * IPv4映射地址会被InetAddress转成Inet4Address，这里补齐为16字节
+     */
+    private static byte[] ipv6Bytes(String ip) throws Exception {
+        byte[] address = InetAddress.getByName(ip).getAddress();
+        if (address.length == 16) {
+            return address;
+        }
+        byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        System.arraycopy(address, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    @Test
+    public void localIdentityMatchesNetworkInterfaces() throws Exception {
+        IPUtil.refreshLocalIdentity();
+
+        Set<InetAddress> expected = new HashSet<InetAddress>();
+        for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            expected.addAll(Collections.list(networkInterface.getInetAddresses()));
+        }
+        assertEquals(expected, new HashSet<InetAddress>(IPUtil.getAllHostAddress()));
+        for (String ip : IPUtil.getAllIpv4NoLoopbackAddresses()) {
+            InetAddress address = InetAddress.getByName(ip);
+            assertTrue(ip, address instanceof Inet4Address && !address.isLoopbackAddress());
+            assertTrue(ip, expected.contains(address));
+        }
+
+        String hostName = "";
+        String localIp = "";
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+            localIp = InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            // 无法解析时缓存中为空字符串
+        }
+        assertEquals(hostName, IPUtil.getLocalHostName());
+        assertEquals(localIp, IPUtil.getLocalIp());
+    }
+
+    @Test
+    public void localIdentityIsCachedAndCopied() {
+        assertSame(IPUtil.getLocalHostName(), IPUtil.getLocalHostName());
+        assertSame(IPUtil.getLocalIp(), IPUtil.getLocalIp());
+
+        Collection<InetAddress> addresses = IPUtil.getAllHostAddress();
+        int size = addresses.size();
+        addresses.clear();
+        assertEquals(size, IPUtil.getAllHostAddress().size());
+
+        Collection<String> ipv4 = IPUtil.getAllIpv4NoLoopbackAddresses();
+        int ipv4Size = ipv4.size();
+        ipv4.add("1.2.3.4");
+        assertEquals(ipv4Size, IPUtil.getAllIpv4NoLoopbackAddresses().size());
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 类的实现描述：IpRangeTable测试
+ */
+public class IpRangeTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static IpRangeTable table() {
+        return IpRangeTable.builder()
+            .addCidr("10.0.0.0/8", 1)
+            .addRange("192.168.1.10", "192.168.1.20", 2)
+            .addCidr("255.255.255.255", 3)
+            .addCidr("0.0.0.0/32", 4)
+            .addCidr("2001:db8::/32", 5)
+            .addRange("fe80::1", "fe80::ff", 6)
+            .build();
+    }
+
+    @Test
+    public void lookup() {
+        IpRangeTable table = table();
+        assertEquals(6, table.size());
+        assertLookups(table);
+    }
+
+    @Test
+    public void writeToAndLoad() throws Exception {
+        File file = new File(folder.getRoot(), "ip.table");
+        table().writeTo(file);
+        assertLookups(IpRangeTable.load(file));
+    }
+
+    @Test
+    public void writeToReplacesExistingFile() throws Exception {
+        File file = new File(folder.getRoot(), "ip.table");
+        IpRangeTable.builder().addCidr("8.8.8.0/24", 7).build().writeTo(file);
+        IpRangeTable old = IpRangeTable.load(file);
+
+        table().writeTo(file);
+
+        // 已加载的旧表不受影响，目录下不残留临时文件
+        assertEquals(7, old.lookup("8.8.8.8"));
+        assertLookups(IpRangeTable.load(file));
+        assertEquals(Arrays.asList("ip.table"), Arrays.asList(folder.getRoot().list()));
+    }
+
+    @Test
+    public void ipv4MappedAddressesUseIPv4Ranges() {
+        IpRangeTable table = table();
+        assertEquals(1, table.lookup("::ffff:10.1.2.3"));
+        assertEquals(2, table.lookup("::FFFF:192.168.1.15"));
+        assertEquals(2, table.lookup("::ffff:c0a8:10f"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("::ffff:11.0.0.0"));
+        assertEquals(1, table.lookupIPv6(0, 0xFFFF0A000001L));
+        // 只有::ffff:0:0/96是IPv4映射地址
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("::10.1.2.3"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("1::ffff:10.1.2.3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverlappingRanges() {
+        IpRangeTable.builder().addCidr("10.0.0.0/8", 1).addCidr("10.1.0.0/16", 2).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIllegalCidr() {
+        IpRangeTable.builder().addCidr("10.0.0.0/40", 1);
+    }
+
+    @Test
+    public void holderSwapReturnsPreviousTable() {
+        IpRangeTable first = table();
+        IpRangeTable second = IpRangeTable.builder().addCidr("8.8.8.0/24", 7).build();
+        IpRangeTable.Holder holder = new IpRangeTable.Holder(first);
+        assertSame(first, holder.swap(second));
+        assertSame(second, holder.get());
+        assertEquals(7, holder.lookup("8.8.8.8"));
+        assertEquals(IpRangeTable.NOT_FOUND, holder.lookup("10.0.0.1"));
+    }
+
+    private static void assertLookups(IpRangeTable table) {
+        assertEquals(1, table.lookup("10.0.0.0"));
+        assertEquals(1, table.lookup("10.255.255.255"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("11.0.0.0"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("192.168.1.9"));
+        assertEquals(2, table.lookup("192.168.1.10"));
+        assertEquals(2, table.lookup("192.168.1.20"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("192.168.1.21"));
+        assertEquals(3, table.lookup("255.255.255.255"));
+        assertEquals(4, table.lookup("0.0.0.0"));
+        assertEquals(5, table.lookup("2001:db8:ffff::1"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("2001:db9::"));
+        assertEquals(6, table.lookup("fe80::80"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("fe80::100"));
+        assertEquals(IpRangeTable.NOT_FOUND, table.lookup("not an ip"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * 类的实现描述：PropertyFileLoader并行读取及合并顺序测试，属性文件见src/test/resources/loader
+ */
+public class PropertyFileLoaderTest {
+
+    private static PropertyFileLoader newLoader() {
+        return new PropertyFileLoader(PropertyFileLoaderTest.class.getClassLoader(), PropertyFileLoaderTest.class);
+    }
+
+    @Test
+    public void mergesDepthFirst() {
+        PropertyFileLoader loader = newLoader();
+        Map<String, String> props = new TreeMap<String, String>();
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+
+        loader.load("loader/root", props, files);
+
+        // 合并顺序 root, a, nested/c, b：c是a的追加文件，先于b合并
+        assertEquals(Arrays.asList("loader/root.properties", "loader/a.properties", "loader/nested/c.properties",
+            "loader/b.properties"), new ArrayList<String>(files.keySet()));
+        assertEquals("b", props.get("order"));
+        assertEquals("c", props.get("shared.ac"));
+        assertEquals("b", props.get("shared.bc"));
+        assertEquals("root", props.get("root.only"));
+        assertEquals(PropertyFileLoaderTest.class.getResource("/loader/nested/c.properties"),
+            files.get("loader/nested/c.properties"));
+        assertEquals(new ArrayList<String>(files.keySet()), new ArrayList<String>(loader.getLoadTimes().keySet()));
+    }
+
+    @Test
+    public void recordsFailedFiles() {
+        PropertyFileLoader loader = newLoader();
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+
+        loader.load("loader/root.properties", new TreeMap<String, String>(), files);
+
+        assertEquals(Collections.singleton("loader/missing.properties"), loader.getFailedFiles());
+        assertEquals(4, files.size());
+        assertTrue(loader.report(), loader.report().startsWith("property files loaded: 4 files"));
+    }
+
+    @Test
+    public void skipsLoadedFiles() {
+        PropertyFileLoader loader = newLoader();
+        Map<String, String> props = new TreeMap<String, String>();
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+        files.put("loader/b.properties", PropertyFileLoaderTest.class.getResource("/loader/b.properties"));
+
+        loader.load("loader/root", props, files);
+
+        // b已读入，不再读取b及其追加文件
+        assertEquals("c", props.get("order"));
+        assertTrue(loader.getFailedFiles().isEmpty());
+        assertEquals(3, loader.getLoadTimes().size());
+    }
+
+    @Test
+    public void propertiesPath() {
+        assertEquals("a.properties", PropertyFileLoader.toPropertyFileName("a"));
+        assertEquals("a.properties", PropertyFileLoader.toPropertyFileName("a.properties"));
+        assertEquals("b", PropertyFileLoader.getPropertiesPath("root.properties", "b"));
+        assertEquals("loader/nested/c",
+            PropertyFileLoader.getPropertiesPath("loader/root.properties", "nested/c").replace('\\', '/'));
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 类的实现描述：PropertySnapshotFile读写及快照过期判断测试
+ */
+public class PropertySnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndRead() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot.bin");
+        URL url = PropertySnapshotFileTest.class.getResource("/config/base.properties");
+        TreeMap<String, String> props = new TreeMap<String, String>();
+        props.put("a", "@b");
+        props.put("b", "值");
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+        files.put("config/base.properties", url);
+
+        PropertySnapshotFile.write(file, props, files, Arrays.asList("config/missing.properties"));
+        PropertySnapshotFile.Content content = PropertySnapshotFile.read(file);
+
+        assertEquals(props, content.props);
+        assertEquals(files, content.files);
+        assertEquals(Long.valueOf(PropertySnapshotFile.lastModifiedOf(url)),
+            content.lastModified.get("config/base.properties"));
+        assertEquals(Collections.singleton("config/missing.properties"), content.missingFiles);
+        assertEquals("值", content.resolved.get("a"));
+        // 同一目录下只留下快照文件，不残留临时文件
+        assertEquals(Arrays.asList("snapshot.bin"), Arrays.asList(folder.getRoot().list()));
+    }
+
+    @Test
+    public void readRejectsMissingOrUnknownFile() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot.bin");
+        assertNull(PropertySnapshotFile.read(file));
+
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.writeInt(0x50534E31);
+            out.writeInt(1);
+        }
+        assertNull(PropertySnapshotFile.read(file));
+    }
+
+    @Test
+    public void staleWhenSourceChanges() throws Exception {
+        URL url = PropertySnapshotFileTest.class.getResource("/config/base.properties");
+        long lastModified = PropertySnapshotFile.lastModifiedOf(url);
+
+        assertFalse(PropertyUtil.isStale(content("config/base.properties", url, lastModified)));
+        assertTrue(PropertyUtil.isStale(content("config/base.properties", url, lastModified - 1000)));
+        assertTrue(PropertyUtil.isStale(content("config/moved.properties", url, lastModified)));
+    }
+
+    @Test
+    public void staleWhenMissingFileAppears() throws Exception {
+        File dir = new File(PropertySnapshotFileTest.class.getResource("/config/base.properties").toURI())
+            .getParentFile();
+        File late = new File(dir, "late.properties");
+        PropertySnapshotFile.Content content = new PropertySnapshotFile.Content(new TreeMap<String, String>(),
+            new LinkedHashMap<String, URL>(), Collections.<String, Long> emptyMap(),
+            new LinkedHashSet<String>(Arrays.asList("config/late.properties")),
+            Collections.<String, String> emptyMap());
+
+        assertFalse(PropertyUtil.isStale(content));
+        assertTrue(late.createNewFile());
+        try {
+            assertTrue(PropertyUtil.isStale(content));
+        } finally {
+            late.delete();
+        }
+    }
+
+    private static PropertySnapshotFile.Content content(String name, URL url, long lastModified) {
+        Map<String, URL> files = new LinkedHashMap<String, URL>();
+        files.put(name, url);
+        return new PropertySnapshotFile.Content(new TreeMap<String, String>(), files,
+            Collections.singletonMap(name, lastModified), Collections.<String> emptySet(),
+            Collections.<String, String> emptyMap());
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 类的实现描述：PropertyUtil读取和重新加载测试，属性文件见src/test/resources/ApplicationResources.properties
+ */
+public class PropertyUtilTest {
+
+    private final List<Set<String>> changes = Collections.synchronizedList(new ArrayList<Set<String>>());
+
+    private final PropertyUtil.PropertyListener listener = changes::add;
+
+    private File reloadable;
+
+    private byte[] reloadableContent;
+
+    @Before
+    public void setUp() throws Exception {
+        reloadable = new File(PropertyUtilTest.class.getResource("/reload/reloadable.properties").toURI());
+        reloadableContent = Files.readAllBytes(reloadable.toPath());
+        PropertyUtil.addListener(listener);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        PropertyUtil.removeListener(listener);
+        Files.write(reloadable.toPath(), reloadableContent);
+        PropertyUtil.reload();
+    }
+
+    @Test
+    public void reloadPicksUpChangedFile() throws Exception {
+        assertEquals("1", PropertyUtil.getProperty("reload.value"));
+
+        write(reloadable, "reload.value=2\nreload.added=yes\n");
+        PropertyUtil.reload();
+
+        assertEquals("2", PropertyUtil.getProperty("reload.value"));
+        assertEquals("yes", PropertyUtil.getProperty("reload.added"));
+        assertEquals(1, changes.size());
+        assertEquals(2, changes.get(0).size());
+        assertTrue(changes.get(0).contains("reload.value"));
+        assertTrue(changes.get(0).contains("reload.added"));
+    }
+
+    @Test
+    public void reloadWithoutChangeNotifiesNothing() {
+        PropertyUtil.reload();
+
+        assertEquals("1", PropertyUtil.getProperty("reload.value"));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void reloadAbortedWhenFileIsMissing() throws Exception {
+        File moved = new File(reloadable.getParentFile(), "reloadable.moved");
+        assertTrue(reloadable.renameTo(moved));
+        try {
+            PropertyUtil.reload();
+        } finally {
+            assertTrue(moved.renameTo(reloadable));
+        }
+
+        // 文件缺失时保留当前属性，不当作删除
+        assertEquals("1", PropertyUtil.getProperty("reload.value"));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void laterIncludesOverrideEarlierOnes() {
+        assertEquals("extra", PropertyUtil.getProperty("config.override"));
+        assertEquals("extra", PropertyUtil.getProperty("ref.overridden"));
+    }
+
+    @Test
+    public void resolvesReferences() {
+        assertEquals("target value", PropertyUtil.getProperty("ref.direct"));
+        assertEquals("target value", PropertyUtil.getProperty("ref.chained"));
+        assertEquals("@ref.self", PropertyUtil.getProperty("ref.self"));
+        assertEquals("@ref.target", PropertyUtil.getProperty("ref.literal"));
+        // 循环引用时闭合循环的属性保留原始值
+        assertEquals("@ref.cycle.a", PropertyUtil.getProperty("ref.cycle.a"));
+        assertEquals("@ref.cycle.a", PropertyUtil.getProperty("ref.cycle.b"));
+        assertNull(PropertyUtil.getProperty("ref.missing"));
+        // 带默认值时返回原始属性值
+        assertEquals("@ref.target", PropertyUtil.getProperty("ref.direct", "default"));
+        assertEquals("default", PropertyUtil.getProperty("ref.missing", "default"));
+    }
+
+    @Test
+    public void typedValues() {
+        assertEquals(42, PropertyUtil.getPropertyOfInt("typed.int"));
+        assertEquals(42, PropertyUtil.getPropertyOfInt("typed.int.ref"));
+        assertEquals(7, PropertyUtil.getPropertyOfInt("typed.missing", 7));
+        assertEquals(12345678901L, PropertyUtil.getPropertyOfLong("typed.long"));
+        assertEquals(7L, PropertyUtil.getPropertyOfLong("typed.missing", 7L));
+        assertTrue(PropertyUtil.getPropertyOfBoolean("typed.boolean"));
+        assertFalse(PropertyUtil.getPropertyOfBoolean("typed.missing"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void typedValueOfMissingKeyWithoutDefault() {
+        PropertyUtil.getPropertyOfInt("typed.missing");
+    }
+
+    @Test
+    public void typedValueCacheIsReplacedOnReload() throws Exception {
+        assertEquals(1, PropertyUtil.getPropertyOfInt("reload.value"));
+
+        write(reloadable, "reload.value=2\n");
+        PropertyUtil.reload();
+
+        assertEquals(2, PropertyUtil.getPropertyOfInt("reload.value"));
+    }
+
+    @Test
+    public void durations() {
+        assertEquals(Duration.ofMillis(1500), PropertyUtil.getPropertyOfDuration("duration.plain"));
+        assertEquals(Duration.ofSeconds(30), PropertyUtil.getPropertyOfDuration("duration.seconds"));
+        assertEquals(Duration.ofMinutes(2), PropertyUtil.getPropertyOfDuration("duration.minutes"));
+        assertEquals(Duration.ofHours(1), PropertyUtil.getPropertyOfDuration("duration.iso"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidDuration() {
+        PropertyUtil.getPropertyOfDuration("duration.invalid");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingDuration() {
+        PropertyUtil.getPropertyOfDuration("duration.missing");
+    }
+
+    @Test
+    public void propertyNamesByPrefix() {
+        assertEquals(Arrays.asList("prefix.a", "prefix.b", "prefix.nested.c"),
+            Collections.list(PropertyUtil.getPropertyNames("prefix.")));
+        assertEquals(4, Collections.list(PropertyUtil.getPropertyNames("prefix")).size());
+        assertTrue(Collections.list(PropertyUtil.getPropertyNames("nothing.")).isEmpty());
+        assertTrue(Collections.list(PropertyUtil.getPropertyNames()).contains("prefixed"));
+    }
+
+    @Test
+    public void loadPropertiesReturnsCopy() {
+        Properties first = PropertyUtil.loadProperties("lookup/values");
+        assertEquals("ff0000", first.getProperty("color.red"));
+        first.setProperty("color.red", "changed");
+        first.remove("size.small");
+
+        Properties second = PropertyUtil.loadProperties("lookup/values");
+        assertEquals("ff0000", second.getProperty("color.red"));
+        assertEquals("1", second.getProperty("size.small"));
+    }
+
+    @Test
+    public void loadedPropertiesAreCachedUntilReload() throws Exception {
+        File values = new File(PropertyUtilTest.class.getResource("/lookup/values.properties").toURI());
+        byte[] content = Files.readAllBytes(values.toPath());
+        assertEquals("1", PropertyUtil.loadProperties("lookup/values").getProperty("size.small"));
+        try {
+            write(values, "size.small=2\n");
+            assertEquals("1", PropertyUtil.loadProperties("lookup/values").getProperty("size.small"));
+
+            PropertyUtil.reload();
+            assertEquals("2", PropertyUtil.loadProperties("lookup/values").getProperty("size.small"));
+        } finally {
+            Files.write(values.toPath(), content);
+        }
+    }
+
+    @Test
+    public void propertiesValuesByPrefix() {
+        assertEquals(new HashSet<String>(Arrays.asList("ff0000", "00ff00", "000000")),
+            PropertyUtil.getPropertiesValues("lookup/values", "color."));
+        assertTrue(PropertyUtil.getPropertiesValues("lookup/values", "weight.").isEmpty());
+        assertNull(PropertyUtil.getPropertiesValues("lookup/values", null));
+    }
+
+    @Test
+    public void missingPropertiesFile() {
+        assertNull(PropertyUtil.loadProperties("lookup/missing"));
+        assertNull(PropertyUtil.loadProperties(""));
+        assertNull(PropertyUtil.loadProperties(null));
+        assertNull(PropertyUtil.getPropertiesValues("lookup/missing", "color."));
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
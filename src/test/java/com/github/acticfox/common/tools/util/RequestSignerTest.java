@@ -0,0 +1,146 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+/**
+ * 类的实现描述：RequestSigner与按字符串拼接规范请求、每次新建Mac的原有方式对比，包括结果和耗时
+ */
+public class RequestSignerTest {
+
+    private static final String METHOD = "post";
+
+    private static final String URL = "https://api.example.com/v1/orders/search";
+
+    private static final byte[] KEY = "consumer secret&token secret".getBytes(StandardCharsets.UTF_8);
+
+    private static Map<String, String> params() {
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        params.put("oauth_consumer_key", "dpf43f3p2l4k3l03");
+        params.put("oauth_nonce", "kllo9940pd9333jh");
+        params.put("oauth_signature_method", "HMAC-SHA1");
+        params.put("oauth_timestamp", "1191242096");
+        params.put("oauth_token", "nnch734d00sl2jdk");
+        params.put("oauth_version", "1.0");
+        params.put("keyword", "中文 & symbols=+/");
+        params.put("page", "1");
+        params.put("size", "50");
+        params.put("empty", null);
+        return params;
+    }
+
+    /**
+     * 原有方式：编码后按key排序，拼接字符串，每次新建Mac
+     */
+    private static String oldCanonicalRequest(String method, String url, Map<String, String> params) {
+        Map<String, String> encoded = new TreeMap<String, String>();
+        for (Entry<String, String> e : params.entrySet()) {
+            encoded.put(URLUtils.percentEncode(e.getKey()),
+                URLUtils.percentEncode(e.getValue() == null ? "" : e.getValue()));
+        }
+        return method.toUpperCase() + "&" + URLUtils.percentEncode(url) + "&"
+            + URLUtils.percentEncode(URLUtils.concatSortedPercentEncodedParams(encoded));
+    }
+
+    private static String oldSignBase64(String method, String url, Map<String, String> params) throws Exception {
+        Mac mac = Mac.getInstance(RequestSigner.HMAC_SHA1);
+        mac.init(new SecretKeySpec(KEY, RequestSigner.HMAC_SHA1));
+        byte[] signature = mac.doFinal(oldCanonicalRequest(method, url, params).getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signature);
+    }
+
+    @Test
+    public void sameAsStringPath() throws Exception {
+        RequestSigner signer = new RequestSigner(RequestSigner.HMAC_SHA1, KEY);
+
+        assertEquals(oldCanonicalRequest(METHOD, URL, params()), RequestSigner.canonicalRequest(METHOD, URL, params()));
+        assertEquals(oldSignBase64(METHOD, URL, params()), signer.signBase64(METHOD, URL, params()));
+    }
+
+    @Test
+    public void canonicalRequestIntoBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        RequestSigner.canonicalRequest(METHOD, URL, params(), buffer);
+
+        assertArrayEquals(oldCanonicalRequest(METHOD, URL, params()).getBytes(StandardCharsets.US_ASCII),
+            Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    @Test
+    public void growsBufferForLargeRequests() throws Exception {
+        Map<String, String> params = params();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            large.append((char) ('a' + i % 26)).append(i % 7 == 0 ? " " : "");
+        }
+        params.put("large", large.toString());
+        RequestSigner signer = new RequestSigner(RequestSigner.HMAC_SHA1, KEY);
+
+        assertEquals(oldSignBase64(METHOD, URL, params), signer.signBase64(METHOD, URL, params));
+        // 超过复用容量的buffer被释放后仍可正常签名
+        assertEquals(oldSignBase64(METHOD, URL, params()), signer.signBase64(METHOD, URL, params()));
+    }
+
+    @Test
+    public void oauthKey() throws Exception {
+        RequestSigner signer = RequestSigner.oauthHmacSha1("consumer secret", "token secret");
+        Mac mac = Mac.getInstance(RequestSigner.HMAC_SHA1);
+        mac.init(new SecretKeySpec("consumer%20secret&token%20secret".getBytes(StandardCharsets.UTF_8),
+            RequestSigner.HMAC_SHA1));
+
+        assertArrayEquals(mac.doFinal(oldCanonicalRequest(METHOD, URL, params()).getBytes(StandardCharsets.UTF_8)),
+            signer.sign(METHOD, URL, params()));
+    }
+
+    /**
+     * 简单计时对比，预热后各执行相同次数，输出每次签名的平均耗时
+     */
+    @Test
+    public void timedAgainstStringPath() throws Exception {
+        RequestSigner signer = new RequestSigner(RequestSigner.HMAC_SHA1, KEY);
+        Map<String, String> params = params();
+        int iterations = 50000;
+        for (int round = 0; round < 3; round++) {
+            long oldNanos = timeOld(params, iterations);
+            long newNanos = timeNew(signer, params, iterations);
+            System.out.println("RequestSigner round " + round + ": string path " + oldNanos / iterations
+                + "ns/op, RequestSigner " + newNanos / iterations + "ns/op");
+        }
+    }
+
+    private static long timeOld(Map<String, String> params, int iterations) throws Exception {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += oldSignBase64(METHOD, URL, params).length();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(28 * iterations, sink);
+        return elapsed;
+    }
+
+    private static long timeNew(RequestSigner signer, Map<String, String> params, int iterations) {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += signer.signBase64(METHOD, URL, params).length();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(28 * iterations, sink);
+        return elapsed;
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 类的实现描述：SpillJournal测试
+ */
+public class SpillJournalTest {
+
+    static final SpillJournal.Serializer<String> STRING_SERIALIZER = new SpillJournal.Serializer<String>() {
+        @Override
+        public byte[] serialize(String s) {
+            return s.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String deserialize(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pollsInAppendOrder() throws IOException {
+        try (SpillJournal<String> journal = new SpillJournal<>(folder.newFile(), STRING_SERIALIZER, 64)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append("data-" + i);
+            }
+            assertEquals(100, journal.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals("data-" + i, journal.poll());
+            }
+            assertTrue(journal.isEmpty());
+            assertNull(journal.poll());
+        }
+    }
+
+    @Test
+    public void peekDoesNotRemove() throws IOException {
+        try (SpillJournal<String> journal = new SpillJournal<>(folder.newFile(), STRING_SERIALIZER)) {
+            journal.append("a");
+            journal.append("b");
+            assertEquals("a", journal.peek());
+            assertEquals("a", journal.peek());
+            assertTrue(journal.remove());
+            assertEquals("b", journal.peek());
+            assertTrue(journal.remove());
+            assertFalse(journal.remove());
+            assertNull(journal.peek());
+        }
+    }
+
+    @Test
+    public void nullRecordsKeepTheirPosition() throws IOException {
+        try (SpillJournal<String> journal = new SpillJournal<>(folder.newFile(), STRING_SERIALIZER, 64)) {
+            journal.append(null);
+            journal.append("a");
+            journal.append(null);
+            assertEquals(3, journal.size());
+            assertNull(journal.poll());
+            assertEquals("a", journal.poll());
+            assertFalse(journal.isEmpty());
+            assertNull(journal.poll());
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    public void corruptedRecordCanBeSkipped() throws IOException {
+        SpillJournal.Serializer<String> serializer = new SpillJournal.Serializer<String>() {
+            @Override
+            public byte[] serialize(String s) throws IOException {
+                return STRING_SERIALIZER.serialize(s);
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) throws IOException {
+                String s = STRING_SERIALIZER.deserialize(bytes);
+                if ("bad".equals(s)) {
+                    throw new IllegalStateException("bad record");
+                }
+                return s;
+            }
+        };
+        try (SpillJournal<String> journal = new SpillJournal<>(folder.newFile(), serializer)) {
+            journal.append("bad");
+            journal.append("good");
+            try {
+                journal.peek();
+                fail("CorruptedRecordException expected");
+            } catch (SpillJournal.CorruptedRecordException expected) {
+            }
+            assertEquals(2, journal.size());
+            assertTrue(journal.remove());
+            assertEquals("good", journal.poll());
+        }
+    }
+
+    @Test
+    public void reopenContinuesFromReadOffset() throws IOException {
+        File file = folder.newFile();
+        try (SpillJournal<String> journal = new SpillJournal<>(file, STRING_SERIALIZER, 64)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append("data-" + i);
+            }
+            journal.poll();
+            journal.poll();
+        }
+        try (SpillJournal<String> journal = new SpillJournal<>(file, STRING_SERIALIZER, 64)) {
+            assertEquals(8, journal.size());
+            for (int i = 2; i < 10; i++) {
+                assertEquals("data-" + i, journal.poll());
+            }
+        }
+    }
+
+    @Test
+    public void steadyBackpressureCompactsInsteadOfGrowing() throws IOException {
+        File file = folder.newFile();
+        int regionSize = 256;
+        try (SpillJournal<String> journal = new SpillJournal<>(file, STRING_SERIALIZER, regionSize)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append("data-" + i);
+            }
+            // 每次写一条读一条，日志始终不为空
+            for (int i = 10; i < 10000; i++) {
+                journal.append("data-" + i);
+                assertEquals("data-" + (i - 10), journal.poll());
+            }
+            assertEquals(10, journal.size());
+            assertTrue("journal file grew to " + file.length(), file.length() < 8 * regionSize);
+        }
+        try (SpillJournal<String> journal = new SpillJournal<>(file, STRING_SERIALIZER, regionSize)) {
+            for (int i = 9990; i < 10000; i++) {
+                assertEquals("data-" + i, journal.poll());
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 类的实现描述：StartupTimeline记录和报告测试
+ */
+public class StartupTimelineTest {
+
+    @Before
+    public void setUp() {
+        StartupTimeline.clear();
+    }
+
+    @After
+    public void tearDown() {
+        StartupTimeline.clear();
+    }
+
+    @Test
+    public void spanRecordsPhase() throws Exception {
+        StartupTimeline.Span span = StartupTimeline.begin(StartupTimeline.STARTER, "starter");
+        byte[] allocated = new byte[1024 * 1024];
+        Thread.sleep(20);
+        StartupTimeline.Phase phase = span.end();
+
+        assertEquals(StartupTimeline.STARTER, phase.getCategory());
+        assertEquals("starter", phase.getName());
+        assertEquals(Thread.currentThread().getName(), phase.getThread());
+        assertTrue(phase.getWallNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(phase.getCpuNanos() == -1 || phase.getCpuNanos() >= 0);
+        assertTrue(phase.getAllocatedBytes() == -1 || phase.getAllocatedBytes() >= allocated.length);
+
+        List<StartupTimeline.Phase> phases = StartupTimeline.getPhases();
+        assertEquals(1, phases.size());
+        assertSame(phase, phases.get(0));
+    }
+
+    @Test
+    public void recordHasOnlyWallTime() {
+        StartupTimeline.record(StartupTimeline.CONFIG, "a.properties", 1000);
+
+        StartupTimeline.Phase phase = StartupTimeline.getPhases().get(0);
+        assertEquals(1000, phase.getWallNanos());
+        assertEquals(-1, phase.getCpuNanos());
+        assertEquals(-1, phase.getAllocatedBytes());
+    }
+
+    @Test
+    public void reportSortsByWallTimeAndSumsByCategory() {
+        StartupTimeline.record(StartupTimeline.CONFIG, "a", TimeUnit.MILLISECONDS.toNanos(10));
+        StartupTimeline.record(StartupTimeline.STARTER, "b", TimeUnit.MILLISECONDS.toNanos(20));
+        StartupTimeline.record(StartupTimeline.CONFIG, "c", TimeUnit.MICROSECONDS.toNanos(15500));
+
+        String thread = Thread.currentThread().getName();
+        assertEquals("startup timeline: 3 phases, starter 1 total 20.0ms, config 2 total 25.5ms"
+            + "\n  [starter] b wall 20.0ms, thread " + thread
+            + "\n  [config] c wall 15.5ms, thread " + thread
+            + "\n  [config] a wall 10.0ms, thread " + thread, StartupTimeline.report());
+        // report不清空已记录的阶段，记录顺序不变
+        assertEquals("a", StartupTimeline.getPhases().get(0).getName());
+        assertEquals(3, StartupTimeline.getPhases().size());
+    }
+
+    @Test
+    public void drainReportClearsPhases() {
+        StartupTimeline.record(StartupTimeline.LISTENER, "listener", TimeUnit.MILLISECONDS.toNanos(1));
+
+        String report = StartupTimeline.drainReport();
+
+        assertTrue(report, report.contains("[listener] listener wall 1.0ms"));
+        assertTrue(StartupTimeline.getPhases().isEmpty());
+        assertEquals("", StartupTimeline.drainReport());
+    }
+
+    @Test
+    public void phasesFromOtherThreadsAreKept() throws Exception {
+        Thread thread = new Thread(() -> StartupTimeline.begin(StartupTimeline.WARM_UP, "warmUp").end(),
+            "startupTimelineTest");
+        thread.start();
+        thread.join();
+
+        StartupTimeline.Phase phase = StartupTimeline.getPhases().get(0);
+        assertEquals("warmUp", phase.getName());
+        assertEquals("startupTimelineTest", phase.getThread());
+    }
+}
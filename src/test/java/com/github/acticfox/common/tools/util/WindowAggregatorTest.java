@@ -0,0 +1,144 @@
+package com.github.acticfox.common.tools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.acticfox.common.tools.thredpool.ShutdownCoordinator;
+
+/**
+ * 类的实现描述：WindowAggregator窗口聚合测试
+ */
+public class WindowAggregatorTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private final List<WindowAggregator.WindowResult<String>> results = Collections.synchronizedList(
+        new ArrayList<WindowAggregator.WindowResult<String>>());
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private DataPipeline<WindowAggregator.WindowResult<String>> downstream() {
+        DataPipeline<WindowAggregator.WindowResult<String>> downstream = DataPipeline.newPipeline();
+        downstream.addHandler(results::add, executor);
+        return downstream;
+    }
+
+    @Test
+    public void closeFlushesOpenWindow() {
+        WindowAggregator<String, String> aggregator = WindowAggregator.tumbling(60000, (s) -> s, (s) -> 1,
+            WindowAggregator.Reducer.sum(), downstream());
+        for (int i = 0; i < 10; i++) {
+            aggregator.handle(i % 2 == 0 ? "even" : "odd");
+        }
+        aggregator.handle("even");
+
+        aggregator.close();
+
+        Map<String, Long> sums = sums();
+        assertEquals(Long.valueOf(6), sums.get("even"));
+        assertEquals(Long.valueOf(5), sums.get("odd"));
+        for (WindowAggregator.WindowResult<String> result : results) {
+            assertEquals(60000, result.getWindowEnd() - result.getWindowStart());
+            assertEquals(0, result.getWindowStart() % 60000);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void concurrentWritesAcrossPaneBoundariesAreNotLost() throws Exception {
+        WindowAggregator<String, String> aggregator = WindowAggregator.tumbling(20, (s) -> s, (s) -> 1,
+            WindowAggregator.Reducer.sum(), downstream());
+        int threads = 4;
+        int perThread = 200000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int n = 0; n < threads; n++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    aggregator.handle("k" + (i & 3));
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(15, TimeUnit.SECONDS));
+
+        aggregator.close();
+
+        long total = 0;
+        for (long sum : sums().values()) {
+            total += sum;
+        }
+        assertEquals((long)threads * perThread, total);
+    }
+
+    @Test
+    public void slidingWindowReducesOverlappingPanes() {
+        WindowAggregator<String, String> aggregator = WindowAggregator.sliding(60000, 30000, (s) -> "max",
+            Long::parseLong, WindowAggregator.Reducer.max(), downstream());
+        aggregator.handle("3");
+        aggregator.handle("42");
+        aggregator.handle("7");
+
+        aggregator.close();
+
+        assertFalse(results.isEmpty());
+        for (WindowAggregator.WindowResult<String> result : results) {
+            assertEquals(42, result.getValue());
+            assertEquals(60000, result.getWindowEnd() - result.getWindowStart());
+            assertEquals(0, result.getWindowStart() % 30000);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDataAfterClose() {
+        WindowAggregator<String, String> aggregator = WindowAggregator.tumbling(1000, (s) -> s, (s) -> 1,
+            WindowAggregator.Reducer.sum(), downstream());
+        aggregator.close();
+        aggregator.handle("late");
+    }
+
+    @Test
+    public void shutdownCoordinatorFlushesRegisteredAggregators() {
+        WindowAggregator<String, String> first = WindowAggregator.tumbling(60000, (s) -> s, (s) -> 1,
+            WindowAggregator.Reducer.sum(), downstream());
+        WindowAggregator<String, String> second = WindowAggregator.tumbling(60000, (s) -> s, (s) -> 2,
+            WindowAggregator.Reducer.sum(), downstream());
+        assertNotEquals(first.getName(), second.getName());
+        first.handle("first");
+        second.handle("second");
+
+        Map<String, Integer> leftovers = ShutdownCoordinator.shutdown(5, TimeUnit.SECONDS);
+
+        assertFalse(leftovers.containsKey(first.getName()));
+        assertFalse(leftovers.containsKey(second.getName()));
+        Map<String, Long> sums = sums();
+        assertEquals(Long.valueOf(1), sums.get("first"));
+        assertEquals(Long.valueOf(2), sums.get("second"));
+    }
+
+    private Map<String, Long> sums() {
+        Map<String, Long> sums = new HashMap<>();
+        synchronized (results) {
+            for (WindowAggregator.WindowResult<String> result : results) {
+                sums.merge(result.getKey(), result.getValue(), Long::sum);
+            }
+        }
+        return sums;
+    }
+}